@@ -0,0 +1,56 @@
+package spaceexplorers.core;
+
+import spaceexplorers.publicapi.IStrategy;
+
+import java.io.IOException;
+
+/**
+ * The maps and strategies benchmarks are parameterised over.
+ * <p>
+ * A map is either the name of a bundled graph, or {@value #SYNTHETIC} followed by a number of planets, for a map
+ * generated from a fixed seed. Generated maps are saved under {@code graphs/} as both DOT and binary maps for the length
+ * of a trial, so that the engine loads them the same way as bundled ones.
+ */
+final class BenchmarkMaps {
+    static final String SYNTHETIC = "synthetic_";
+    private static final long SEED = 42;
+
+    private BenchmarkMaps() {
+    }
+
+    static void prepare(String map) throws IOException {
+        if (map.startsWith(SYNTHETIC)) {
+            int planets = Integer.parseInt(map.substring(SYNTHETIC.length()));
+            MapTemplate template = new MapGenerator(SEED).generate(planets);
+            SystemLoader.save(Assets.getGraphFile(map).getPath(), template);
+            // Written second, so that it is at least as new as the DOT file and is the one loaded
+            SystemLoader.save(Assets.getMapFile(map).getPath(), template);
+        }
+    }
+
+    static void cleanUp(String map) {
+        if (map.startsWith(SYNTHETIC)) {
+            Assets.getGraphFile(map).delete();
+            Assets.getMapFile(map).delete();
+        }
+    }
+
+    /**
+     * @param name The simple name of one of the built-in strategies, such as {@code RandomStrategy}
+     */
+    static IStrategy newStrategy(String name) throws ReflectiveOperationException {
+        return Class.forName("spaceexplorers.strategies." + name).asSubclass(IStrategy.class)
+                .getDeclaredConstructor().newInstance();
+    }
+
+    /**
+     * @return A game between two instances of the strategy, played for the given number of ticks or until it ends
+     */
+    static SpaceExplorers playedFor(String map, String strategy, int ticks) throws IOException, ReflectiveOperationException {
+        SpaceExplorers game = new SpaceExplorers(newStrategy(strategy), newStrategy(strategy), map, false);
+        for (int i = 0; i < ticks && !game.isOver(); i++) {
+            game.gameTick();
+        }
+        return game;
+    }
+}
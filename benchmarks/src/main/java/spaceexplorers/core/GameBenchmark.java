@@ -0,0 +1,41 @@
+package spaceexplorers.core;
+
+import org.openjdk.jmh.annotations.*;
+import spaceexplorers.publicapi.IStrategy;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole headless game, from loading the map to the last tick, as the strategy ranker plays them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+    @Param({"k4", "rings", "graph_0", "graph_50", "synthetic_1000"})
+    public String map;
+
+    @Param({"RandomStrategy", "StudentStrategy"})
+    public String strategy;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        BenchmarkMaps.prepare(map);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() {
+        BenchmarkMaps.cleanUp(map);
+    }
+
+    @Benchmark
+    public IStrategy runToCompletion() throws IOException, ReflectiveOperationException {
+        SpaceExplorers game = new SpaceExplorers(BenchmarkMaps.newStrategy(strategy), BenchmarkMaps.newStrategy(strategy),
+                map, false);
+        return game.runToCompletion(10000);
+    }
+}
@@ -0,0 +1,50 @@
+package spaceexplorers.core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One tick of a game: planets advance, the win conditions are checked, and one player takes a turn.
+ * <p>
+ * A new game is started whenever the last one ends, so every tick measured is played; the ticks of a game are long
+ * enough that checking between them costs nothing to speak of.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameTickBenchmark {
+    @Param({"k4", "rings", "graph_0", "graph_50", "synthetic_1000", "synthetic_10000"})
+    public String map;
+
+    @Param({"RandomStrategy", "StudentStrategy"})
+    public String strategy;
+
+    private SpaceExplorers game;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        BenchmarkMaps.prepare(map);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() {
+        BenchmarkMaps.cleanUp(map);
+    }
+
+    @Setup(Level.Invocation)
+    public void startGame() throws IOException, ReflectiveOperationException {
+        if (game == null || game.isOver()) {
+            game = BenchmarkMaps.playedFor(map, strategy, 0);
+        }
+    }
+
+    @Benchmark
+    public void gameTick() {
+        game.gameTick();
+    }
+}
@@ -0,0 +1,72 @@
+package spaceexplorers.core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding the drawn path along every edge of a map, as the game window does when it opens, without the cache.
+ * Synthetic maps are kept to a size a window could show.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PathFinderBenchmark {
+    @Param({"k4", "rings", "graph_0", "graph_50", "synthetic_100"})
+    public String map;
+
+    @Param({"true", "false"})
+    public boolean straight;
+
+    private PathFinder pathFinder;
+    private final List<Planet[]> edges = new ArrayList<>();
+    private final List<Integer> times = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException, ReflectiveOperationException {
+        BenchmarkMaps.prepare(map);
+        SpaceExplorers game = BenchmarkMaps.playedFor(map, "NoOpStrategy", 0);
+        int columns = 0;
+        int rows = 0;
+        for (Planet planet : game.getPlanets()) {
+            columns = Math.max(columns, (int) planet.getLocation().getX() + 1);
+            rows = Math.max(rows, (int) planet.getLocation().getY() + 1);
+        }
+        // The frame moves the planets to the centres of their cells, which is where paths are found between
+        SpaceExplorersFrame frame = new SpaceExplorersFrame(columns * SpaceExplorersFrame.BUCKET_WIDTH,
+                rows * SpaceExplorersFrame.BUCKET_WIDTH, "benchmark", game);
+        pathFinder = new PathFinder(frame);
+        for (Planet planet : game.getPlanets()) {
+            for (Planet neighbour : planet.getNeighboringPlanets()) {
+                if (planet.getId() < neighbour.getId()) {
+                    double dx = planet.getLocation().getX() - neighbour.getLocation().getX();
+                    double dy = planet.getLocation().getY() - neighbour.getLocation().getY();
+                    edges.add(new Planet[]{planet, neighbour});
+                    times.add((int) Math.sqrt(dx * dx + dy * dy) / SpaceExplorersFrame.EDGE_POINT_SPACING);
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() {
+        BenchmarkMaps.cleanUp(map);
+    }
+
+    @Benchmark
+    public int findPaths() {
+        pathFinder.clearCache();
+        int points = 0;
+        for (int i = 0; i < edges.size(); i++) {
+            Planet[] edge = edges.get(i);
+            points += pathFinder.findPath(edge[0], edge[1], times.get(i), straight).size();
+        }
+        return points;
+    }
+}
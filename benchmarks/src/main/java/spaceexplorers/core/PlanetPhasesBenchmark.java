@@ -0,0 +1,83 @@
+package spaceexplorers.core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The phases of a tick on every planet, separately and together, on a copy of a game part way through.
+ * <p>
+ * The copy is taken afresh for each iteration. Within one, populations drift towards their planets' sizes, as they
+ * would over a long game.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlanetPhasesBenchmark {
+    private static final int TICKS = 30;
+
+    @Param({"k4", "rings", "graph_0", "graph_50", "synthetic_1000", "synthetic_10000"})
+    public String map;
+
+    private PlanetState played;
+    private PlanetState state;
+    private int tick;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException, ReflectiveOperationException {
+        BenchmarkMaps.prepare(map);
+        SpaceExplorers game = BenchmarkMaps.playedFor(map, "StudentStrategy", TICKS);
+        played = game.getState();
+        tick = game.getTurns();
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() {
+        BenchmarkMaps.cleanUp(map);
+    }
+
+    @Setup(Level.Iteration)
+    public void copy() {
+        state = played.copy();
+    }
+
+    @Benchmark
+    public void grow() {
+        for (int i = 0, n = state.getPlanetCount(); i < n; i++) {
+            state.grow(i);
+        }
+    }
+
+    /**
+     * Lands one person from each player on every planet; otherwise nothing would be left to land after the first call.
+     */
+    @Benchmark
+    public void landArrivals() {
+        byte player1 = (byte) InternalPlayer.PLAYER1.ordinal();
+        byte player2 = (byte) InternalPlayer.PLAYER2.ordinal();
+        for (int i = 0, n = state.getPlanetCount(); i < n; i++) {
+            state.arrive(i, player1, 1);
+            state.arrive(i, player2, 1);
+            state.landArrivals(i);
+        }
+    }
+
+    @Benchmark
+    public void shrink() {
+        for (int i = 0, n = state.getPlanetCount(); i < n; i++) {
+            state.shrink(i);
+        }
+    }
+
+    /**
+     * The three phases on every planet, along with landing the shuttles due, as a tick does.
+     */
+    @Benchmark
+    public void advance() {
+        state.advance(++tick);
+    }
+}
@@ -0,0 +1,56 @@
+package spaceexplorers.core;
+
+import org.openjdk.jmh.annotations.*;
+import spaceexplorers.publicapi.IPlanet;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building a player's view of a game part way through, as handed to its strategy each turn.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+    private static final int TICKS = 30;
+
+    @Param({"k4", "rings", "graph_0", "graph_50", "synthetic_1000", "synthetic_10000"})
+    public String map;
+
+    private PlanetState state;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException, ReflectiveOperationException {
+        BenchmarkMaps.prepare(map);
+        state = BenchmarkMaps.playedFor(map, "StudentStrategy", TICKS).getState();
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() {
+        BenchmarkMaps.cleanUp(map);
+    }
+
+    /**
+     * Every planet has changed since the last view, as on a player's first turn.
+     */
+    @Benchmark
+    public List<IPlanet> allChanged() {
+        for (int i = 0, n = state.getPlanetCount(); i < n; i++) {
+            state.markChanged(i);
+        }
+        return state.getPlanetsSnapshot(InternalPlayer.PLAYER1);
+    }
+
+    /**
+     * Nothing has changed but the shuttles in flight, which is the least a view can cost.
+     */
+    @Benchmark
+    public List<IPlanet> unchanged() {
+        return state.getPlanetsSnapshot(InternalPlayer.PLAYER1);
+    }
+}
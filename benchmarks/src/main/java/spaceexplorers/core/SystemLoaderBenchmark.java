@@ -0,0 +1,52 @@
+package spaceexplorers.core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading maps: parsing a DOT file, reading a binary map, and starting a game on a map already compiled.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SystemLoaderBenchmark {
+    @Param({"k4", "rings", "graph_0", "graph_50", "synthetic_1000", "synthetic_10000"})
+    public String map;
+
+    private File mapFile;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        BenchmarkMaps.prepare(map);
+        // Bundled graphs only come as DOT
+        mapFile = File.createTempFile("benchmark-" + map, MapFile.EXTENSION);
+        MapFile.write(SystemLoader.parse(map), mapFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() {
+        BenchmarkMaps.cleanUp(map);
+        mapFile.delete();
+    }
+
+    @Benchmark
+    public MapTemplate parseDot() throws IOException {
+        return SystemLoader.parse(map);
+    }
+
+    @Benchmark
+    public MapTemplate readMapFile() throws IOException {
+        return MapFile.read(mapFile);
+    }
+
+    @Benchmark
+    public PlanetState load() throws IOException {
+        return SystemLoader.load(map, null);
+    }
+}
@@ -0,0 +1,54 @@
+package spaceexplorers.core;
+
+import spaceexplorers.publicapi.IAnytimeTurn;
+import spaceexplorers.publicapi.IEvent;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Queue;
+
+/**
+ * Holds the moves an {@link spaceexplorers.publicapi.IAnytimeStrategy} last published, until the engine ends the turn.
+ * <p>
+ * The strategy may still be running on another thread when the turn ends, so publishing and ending are synchronized,
+ * and once ended the moves can no longer change.
+ */
+final class AnytimeTurn implements IAnytimeTurn {
+    private final long deadline;
+    private Queue<IEvent> published = new ArrayDeque<>(); // Guarded by this
+    private boolean ended; // Guarded by this
+
+    AnytimeTurn(long deadline) {
+        this.deadline = deadline;
+    }
+
+    @Override
+    public long getDeadline() {
+        return deadline;
+    }
+
+    @Override
+    public long getRemainingNanos() {
+        return deadline - System.nanoTime();
+    }
+
+    @Override
+    public void publish(Collection<? extends IEvent> moves) {
+        Queue<IEvent> copy = new ArrayDeque<>(moves);
+        synchronized (this) {
+            if (!ended) {
+                published = copy;
+            }
+        }
+    }
+
+    /**
+     * Ends the turn.
+     *
+     * @return The moves published last
+     */
+    synchronized Queue<IEvent> end() {
+        ended = true;
+        return published;
+    }
+}
@@ -10,6 +10,8 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The Assets class provides utility methods for loading assets such as images, player strategies, and graphs.
@@ -22,6 +24,9 @@ public final class Assets {
     private static final String IMG_DIR = "img/";
     private static final String[] PLANET_IMGS = {IMG_DIR + "alpha.png", IMG_DIR + "beta.png", IMG_DIR +"neutral.png"};
 
+    // Strategy classes already loaded from each JAR file, by JAR name
+    private static final Map<String, LoadedStrategy> STRATEGY_CLASSES = new ConcurrentHashMap<>();
+
     /**
      * Load the planet image based on the specified player.
      *
@@ -44,25 +49,100 @@ public final class Assets {
 
     /**
      * Load a player strategy from a JAR file.
+     * <p>
+     * Each JAR is only loaded once, and every instance after the first comes from the same class, so instances share
+     * any static state. The JAR is loaded again if it has been modified since. The old loader isn't closed, as instances
+     * still playing from it may yet need classes it hasn't loaded; it is collected once they are all gone.
      *
      * @param jar The name of the JAR file containing the player strategy.
      * @return The loaded player strategy.
      */
     public static IStrategy loadPlayer(String jar) {
-        final String playerJar = STRATEGIES_DIR + jar + ".jar";
-        final String STRATEGY = "spaceexplorers.strategies."+jar;
+        final File playerJar = new File(STRATEGIES_DIR + jar + ".jar");
+        final long lastModified = playerJar.lastModified();
         try {
-            // Create a URLClassLoader to load classes from the JAR file
-            ClassLoader loader = new URLClassLoader(new URL[]{new File(playerJar).toURI().toURL()}, Thread.currentThread().getContextClassLoader());
-            // Load the strategy class
-            Class<?> c = loader.loadClass(STRATEGY);
+            LoadedStrategy loaded = STRATEGY_CLASSES.get(jar);
+            if (loaded == null || loaded.lastModified != lastModified) {
+                loaded = STRATEGY_CLASSES.compute(jar, (name, previous) -> {
+                    if (previous != null && previous.lastModified == lastModified) {
+                        // Another thread got here first
+                        return previous;
+                    }
+                    return LoadedStrategy.load(name, playerJar, lastModified);
+                });
+            }
             // Instantiate and return the strategy object
-            return (IStrategy) c.newInstance();
-        } catch (IllegalAccessException | InstantiationException | ClassNotFoundException | MalformedURLException e) {
+            return loaded.strategyClass.newInstance();
+        } catch (IllegalAccessException | InstantiationException | IllegalStateException e) {
             return null;
         }
     }
 
+    /**
+     * Load a player strategy from a JAR file into a separate worker process, where it can be killed if it misbehaves.
+     * <p>
+     * The strategy returned is {@link AutoCloseable}; close it once its game is over, so that its worker can be reused by
+     * the next game rather than started afresh.
+     *
+     * @param jar The name of the JAR file containing the player strategy.
+     * @return A stand-in for the player strategy, or null if it couldn't be loaded.
+     */
+    public static IStrategy loadRemotePlayer(String jar) {
+        return RemoteStrategy.load(jar);
+    }
+
+    /**
+     * Start worker processes for {@link #loadRemotePlayer(String)} ahead of time, so that the first games don't wait
+     * for them.
+     *
+     * @param count How many idle workers to have ready.
+     * @throws IOException If a worker could not be started.
+     */
+    public static void prestartRemotePlayers(int count) throws IOException {
+        StrategyWorker.prestart(count);
+    }
+
+    /**
+     * A strategy class loaded from a JAR file, which keeps the loader that owns it alive.
+     */
+    private static final class LoadedStrategy {
+        private final Class<? extends IStrategy> strategyClass;
+        private final long lastModified;
+
+        private LoadedStrategy(Class<? extends IStrategy> strategyClass, long lastModified) {
+            this.strategyClass = strategyClass;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * @throws IllegalStateException If the JAR does not contain a strategy with the same name
+         */
+        static LoadedStrategy load(String jar, File playerJar, long lastModified) {
+            final String STRATEGY = "spaceexplorers.strategies." + jar;
+            URLClassLoader loader = null;
+            try {
+                // Create a URLClassLoader to load classes from the JAR file
+                loader = new URLClassLoader(new URL[]{playerJar.toURI().toURL()}, Thread.currentThread().getContextClassLoader());
+                // Load the strategy class
+                Class<? extends IStrategy> c = loader.loadClass(STRATEGY).asSubclass(IStrategy.class);
+                return new LoadedStrategy(c, lastModified);
+            } catch (ClassNotFoundException | ClassCastException | MalformedURLException e) {
+                if (loader != null) {
+                    closeQuietly(loader);
+                }
+                throw new IllegalStateException("Failed to load " + STRATEGY + " from " + playerJar, e);
+            }
+        }
+
+        private static void closeQuietly(URLClassLoader loader) {
+            try {
+                loader.close();
+            } catch (IOException e) {
+                // Nothing more we can do with it
+            }
+        }
+    }
+
     /**
      * Load a graph from a DOT file.
      *
@@ -71,8 +151,27 @@ public final class Assets {
      * @throws FileNotFoundException If the specified DOT file is not found.
      */
     public static GraphParser loadGraph(String graph) throws FileNotFoundException {
-        String filename = GRAPHS_DIR + graph + ".dot";
-        return new GraphParser(new FileInputStream(filename));
+        return new GraphParser(new FileInputStream(getGraphFile(graph)));
+    }
+
+    /**
+     * Get the DOT file a graph is loaded from.
+     *
+     * @param graph The name of the graph.
+     * @return The graph's DOT file, which may not exist.
+     */
+    static File getGraphFile(String graph) {
+        return new File(GRAPHS_DIR + graph + ".dot");
+    }
+
+    /**
+     * Get the binary map file a graph can be loaded from instead of its DOT file.
+     *
+     * @param graph The name of the graph.
+     * @return The graph's binary map file, which may not exist.
+     */
+    static File getMapFile(String graph) {
+        return new File(GRAPHS_DIR + graph + MapFile.EXTENSION);
     }
 
     /**
@@ -0,0 +1,586 @@
+package spaceexplorers.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads maps from the subset of the DOT language that map files use, in a single pass.
+ * <p>
+ * A map is an undirected graph, {@code graph g { ... }}, made of node statements such as
+ * {@code 14 [ base = 1, habit = 8, size = 184, x = 4, y = 3 ]} and edge statements such as
+ * {@code 1 -- 2 [ weight = 2, label = 2 ]}. Attributes may come in any order, statements may end with {@code ;}, edges
+ * may be chained ({@code 1 -- 2 -- 3}), and {@code //}, {@code #} and {@code /* *&#47;} comments are skipped. Any other
+ * statement is accepted and ignored, as are attributes the engine does not use. Numbers are read straight from the
+ * bytes of the file, and planets and edges go straight into primitive columns.
+ */
+final class DotReader {
+    private static final int EOF = -1;
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    // Attributes the engine uses, as bits in the set of attributes a planet has been given
+    private static final int HABIT = 1;
+    private static final int SIZE = 1 << 1;
+    private static final int X = 1 << 2;
+    private static final int Y = 1 << 3;
+    private static final int REQUIRED = HABIT | SIZE | X | Y;
+
+    // Token kinds
+    private static final int END = 0;
+    private static final int WORD = 1; // An identifier, number or quoted string
+    private static final int EDGE_OP = 2; // -- or ->
+    private static final int PUNCTUATION = 3; // One of { } [ ] = , ;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferLength;
+    private int bufferPosition;
+    private int line = 1;
+
+    // The current token
+    private int kind;
+    private char punctuation;
+    private char[] word = new char[32];
+    private int wordLength;
+    private boolean wordIsNumber;
+    private long number;
+
+    // Planets, indexed by the order they were first mentioned in
+    private int planetCount;
+    private int[] slotById = new int[0];
+    private int[] ids = new int[64];
+    private int[] habitability = new int[64];
+    private long[] size = new long[64];
+    private int[] x = new int[64];
+    private int[] y = new int[64];
+    private InternalPlayer[] owningPlayer = new InternalPlayer[64];
+    private int[] given = new int[64];
+
+    private int edgeCount;
+    private int[] edgeSource = new int[64];
+    private int[] edgeDestination = new int[64];
+    private int[] edgeLength = new int[64];
+    private final char[] keyA = new char[24];
+    private final char[] keyB = new char[24];
+
+    private DotReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads a map, without closing the stream.
+     *
+     * @throws IllegalArgumentException If the map is malformed, or a planet is missing an attribute
+     */
+    static MapTemplate read(InputStream in) throws IOException {
+        DotReader reader = new DotReader(in);
+        reader.readGraph();
+        return reader.compile();
+    }
+
+    private void readGraph() throws IOException {
+        next();
+        if (isKeyword("strict")) {
+            next();
+        }
+        if (!isKeyword("graph") && !isKeyword("digraph")) {
+            throw error("Expected a graph");
+        }
+        next();
+        if (kind == WORD) {
+            next(); // The graph's name
+        }
+        expect('{');
+
+        while (!isPunctuation('}')) {
+            if (kind == END) {
+                throw error("Expected }");
+            }
+            readStatement();
+            if (isPunctuation(';')) {
+                next();
+            }
+        }
+    }
+
+    private void readStatement() throws IOException {
+        if (kind != WORD) {
+            throw error("Expected a statement");
+        }
+        if (isKeyword("graph") || isKeyword("node") || isKeyword("edge")) {
+            // Defaults for the graph, nodes or edges; maps don't rely on them
+            next();
+            skipAttributes();
+            return;
+        }
+        if (!wordIsNumber) {
+            // A graph attribute such as rankdir = LR
+            next();
+            if (isPunctuation('=')) {
+                next();
+                next();
+            }
+            return;
+        }
+
+        int id = planetId();
+        next();
+        if (kind == EDGE_OP) {
+            int[] chain = {id};
+            int chainLength = 1;
+            while (kind == EDGE_OP) {
+                next();
+                if (kind != WORD || !wordIsNumber) {
+                    throw error("Expected a planet id");
+                }
+                if (chainLength == chain.length) {
+                    chain = Arrays.copyOf(chain, chainLength * 2);
+                }
+                chain[chainLength++] = planetId();
+                next();
+            }
+            int weight = readEdgeAttributes();
+            for (int i = 1; i < chainLength; i++) {
+                addEdge(chain[i - 1], chain[i], weight);
+            }
+        } else {
+            readNodeAttributes(slotOf(id));
+        }
+    }
+
+    private void readNodeAttributes(int slot) throws IOException {
+        if (!isPunctuation('[')) {
+            return;
+        }
+        next();
+        while (!isPunctuation(']')) {
+            String attribute = null;
+            if (kind == WORD) {
+                if (isKeyword("habit")) {
+                    attribute = "habit";
+                } else if (isKeyword("size")) {
+                    attribute = "size";
+                } else if (isKeyword("x")) {
+                    attribute = "x";
+                } else if (isKeyword("y")) {
+                    attribute = "y";
+                } else if (isKeyword("base")) {
+                    attribute = "base";
+                }
+            }
+            if (attribute == null) {
+                skipAttribute();
+                continue;
+            }
+            next();
+            expect('=');
+            long value = expectNumber(attribute);
+            switch (attribute) {
+                case "habit":
+                    habitability[slot] = (int) value;
+                    given[slot] |= HABIT;
+                    break;
+                case "size":
+                    size[slot] = value;
+                    given[slot] |= SIZE;
+                    break;
+                case "x":
+                    x[slot] = (int) value;
+                    given[slot] |= X;
+                    break;
+                case "y":
+                    y[slot] = (int) value;
+                    given[slot] |= Y;
+                    break;
+                default:
+                    if (value == 1) {
+                        owningPlayer[slot] = InternalPlayer.PLAYER1;
+                    } else if (value == 2) {
+                        owningPlayer[slot] = InternalPlayer.PLAYER2;
+                    } else {
+                        throw new IllegalArgumentException("Base must be either 1 or 2");
+                    }
+                    break;
+            }
+            next();
+            skipSeparator();
+        }
+        next();
+    }
+
+    /**
+     * @return The weight given to the edges
+     */
+    private int readEdgeAttributes() throws IOException {
+        if (!isPunctuation('[')) {
+            throw error("Edge has no weight");
+        }
+        next();
+        long weight = -1;
+        while (!isPunctuation(']')) {
+            if (kind == WORD && isKeyword("weight")) {
+                next();
+                expect('=');
+                weight = expectNumber("weight");
+                next();
+                skipSeparator();
+            } else {
+                skipAttribute();
+            }
+        }
+        next();
+        if (weight < 0) {
+            throw error("Edge has no weight");
+        }
+        return (int) weight;
+    }
+
+    private void skipAttributes() throws IOException {
+        while (isPunctuation('[')) {
+            next();
+            while (!isPunctuation(']')) {
+                skipAttribute();
+            }
+            next();
+        }
+    }
+
+    private void skipAttribute() throws IOException {
+        if (kind != WORD) {
+            throw error("Expected an attribute");
+        }
+        next();
+        if (isPunctuation('=')) {
+            next();
+            if (kind != WORD) {
+                throw error("Expected a value");
+            }
+            next();
+        }
+        skipSeparator();
+    }
+
+    private void skipSeparator() throws IOException {
+        if (isPunctuation(',') || isPunctuation(';')) {
+            next();
+        } else if (kind == END) {
+            throw error("Expected ]");
+        }
+    }
+
+    private int planetId() {
+        if (number < 0 || number > Integer.MAX_VALUE) {
+            throw error("Planet ids must be non-negative integers");
+        }
+        return (int) number;
+    }
+
+    /**
+     * @return The slot of the planet with the given id, adding it if this is the first time it has been mentioned
+     */
+    private int slotOf(int id) {
+        if (id >= slotById.length) {
+            int oldLength = slotById.length;
+            slotById = Arrays.copyOf(slotById, Math.max(id + 1, oldLength * 2));
+            Arrays.fill(slotById, oldLength, slotById.length, -1);
+        }
+        if (slotById[id] < 0) {
+            if (planetCount == ids.length) {
+                int capacity = planetCount * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                habitability = Arrays.copyOf(habitability, capacity);
+                size = Arrays.copyOf(size, capacity);
+                x = Arrays.copyOf(x, capacity);
+                y = Arrays.copyOf(y, capacity);
+                owningPlayer = Arrays.copyOf(owningPlayer, capacity);
+                given = Arrays.copyOf(given, capacity);
+            }
+            ids[planetCount] = id;
+            owningPlayer[planetCount] = InternalPlayer.NEUTRAL;
+            slotById[id] = planetCount++;
+        }
+        return slotById[id];
+    }
+
+    private void addEdge(int source, int destination, int weight) {
+        slotOf(source);
+        slotOf(destination);
+        if (edgeCount == edgeSource.length) {
+            int capacity = edgeCount * 2;
+            edgeSource = Arrays.copyOf(edgeSource, capacity);
+            edgeDestination = Arrays.copyOf(edgeDestination, capacity);
+            edgeLength = Arrays.copyOf(edgeLength, capacity);
+        }
+        edgeSource[edgeCount] = source;
+        edgeDestination[edgeCount] = destination;
+        edgeLength[edgeCount++] = weight;
+    }
+
+    private MapTemplate compile() {
+        // Rows are assigned in id order so that the simulation visits planets in a stable order
+        int[] rowIds = new int[planetCount];
+        int[] rowHabitability = new int[planetCount];
+        long[] rowSize = new long[planetCount];
+        int[] rowX = new int[planetCount];
+        int[] rowY = new int[planetCount];
+        InternalPlayer[] rowOwner = new InternalPlayer[planetCount];
+        int row = 0;
+        for (int id = 0; id < slotById.length; id++) {
+            int slot = slotById[id];
+            if (slot < 0) {
+                continue;
+            }
+            if ((given[slot] & REQUIRED) != REQUIRED) {
+                throw new IllegalArgumentException("Planet " + id + " needs habit, size, x and y");
+            }
+            rowIds[row] = id;
+            rowHabitability[row] = habitability[slot];
+            rowSize[row] = size[slot];
+            rowX[row] = x[slot];
+            rowY[row] = y[slot];
+            rowOwner[row] = owningPlayer[slot];
+            row++;
+        }
+
+        // Edges are handed on in the order digraph-parser used to keep them, sorted by "source-destination" as text,
+        // with a repeated edge taking the weight it was given last. Planets keep their edges in hash sets, so this is
+        // what keeps every planet's edges in the same order for strategies.
+        Integer[] order = new Integer[edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            order[e] = e;
+        }
+        Arrays.sort(order, this::compareEdgeKeys);
+        int[] sortedSource = new int[edgeCount];
+        int[] sortedDestination = new int[edgeCount];
+        int[] sortedLength = new int[edgeCount];
+        int sorted = 0;
+        for (int k = 0; k < edgeCount; k++) {
+            int e = order[k];
+            if (sorted > 0 && sortedSource[sorted - 1] == edgeSource[e] && sortedDestination[sorted - 1] == edgeDestination[e]) {
+                sorted--;
+            }
+            sortedSource[sorted] = edgeSource[e];
+            sortedDestination[sorted] = edgeDestination[e];
+            sortedLength[sorted++] = edgeLength[e];
+        }
+
+        return MapTemplate.fromEdges(rowIds, rowHabitability, rowSize, rowOwner, rowX, rowY,
+                Arrays.copyOf(sortedSource, sorted), Arrays.copyOf(sortedDestination, sorted), Arrays.copyOf(sortedLength, sorted));
+    }
+
+    private int compareEdgeKeys(int a, int b) {
+        int lengthA = writeEdgeKey(a, keyA);
+        int lengthB = writeEdgeKey(b, keyB);
+        return Arrays.compare(keyA, 0, lengthA, keyB, 0, lengthB);
+    }
+
+    /**
+     * Writes out an edge's key, its source and destination ids joined by a dash.
+     *
+     * @return The length of the key
+     */
+    private int writeEdgeKey(int e, char[] key) {
+        int length = writeDigits(edgeSource[e], key, 0);
+        key[length++] = '-';
+        return writeDigits(edgeDestination[e], key, length);
+    }
+
+    private static int writeDigits(int value, char[] into, int at) {
+        int digits = 1;
+        for (int rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = at + digits - 1; i >= at; i--) {
+            into[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return at + digits;
+    }
+
+    private void expect(char c) throws IOException {
+        if (!isPunctuation(c)) {
+            throw error("Expected " + c);
+        }
+        next();
+    }
+
+    private long expectNumber(String attribute) {
+        if (kind != WORD || !wordIsNumber) {
+            throw error("Expected a number for " + attribute);
+        }
+        return number;
+    }
+
+    private boolean isPunctuation(char c) {
+        return kind == PUNCTUATION && punctuation == c;
+    }
+
+    private boolean isKeyword(String keyword) {
+        if (kind != WORD || wordLength != keyword.length()) {
+            return false;
+        }
+        for (int i = 0; i < wordLength; i++) {
+            if (word[i] != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " on line " + line);
+    }
+
+    /**
+     * Moves on to the next token.
+     */
+    private void next() throws IOException {
+        int c = skipSpaceAndComments();
+        if (c == EOF) {
+            kind = END;
+            return;
+        }
+        switch (c) {
+            case '{':
+            case '}':
+            case '[':
+            case ']':
+            case '=':
+            case ',':
+            case ';':
+                kind = PUNCTUATION;
+                punctuation = (char) c;
+                return;
+            case '"':
+                readQuoted();
+                return;
+            default:
+                break;
+        }
+        if (c == '-') {
+            int following = peek();
+            if (following == '-' || following == '>') {
+                read();
+                kind = EDGE_OP;
+                return;
+            }
+        }
+        if (!isWordChar(c)) {
+            throw error("Unexpected " + (char) c);
+        }
+
+        kind = WORD;
+        wordLength = 0;
+        append(c);
+        while (isWordChar(peek()) && !(peek() == '-' && wordLength > 0)) {
+            append(read());
+        }
+        parseNumber();
+    }
+
+    private void readQuoted() throws IOException {
+        kind = WORD;
+        wordLength = 0;
+        int c;
+        while ((c = read()) != '"') {
+            if (c == EOF) {
+                throw error("Unterminated string");
+            }
+            if (c == '\\') {
+                c = read();
+            }
+            if (c == '\n') {
+                line++;
+            }
+            append(c);
+        }
+        parseNumber();
+    }
+
+    private void append(int c) {
+        if (wordLength == word.length) {
+            word = Arrays.copyOf(word, wordLength * 2);
+        }
+        word[wordLength++] = (char) c;
+    }
+
+    private void parseNumber() {
+        int i = 0;
+        boolean negative = wordLength > 0 && word[0] == '-';
+        if (negative) {
+            i++;
+        }
+        wordIsNumber = i < wordLength && wordLength - i <= 18;
+        long value = 0;
+        for (; i < wordLength && wordIsNumber; i++) {
+            char digit = word[i];
+            if (digit < '0' || digit > '9') {
+                wordIsNumber = false;
+            }
+            value = value * 10 + (digit - '0');
+        }
+        number = negative ? -value : value;
+    }
+
+    private static boolean isWordChar(int c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '.' || c == '-';
+    }
+
+    /**
+     * @return The first character which is not white space or part of a comment
+     */
+    private int skipSpaceAndComments() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == '\n') {
+                line++;
+            } else if (c == '#' || (c == '/' && peek() == '/')) {
+                while (c != '\n' && c != EOF) {
+                    c = read();
+                }
+                if (c == '\n') {
+                    line++;
+                }
+            } else if (c == '/' && peek() == '*') {
+                read();
+                int previous = 0;
+                while (!(previous == '*' && c == '/')) {
+                    previous = c;
+                    c = read();
+                    if (c == EOF) {
+                        throw error("Unterminated comment");
+                    }
+                    if (c == '\n') {
+                        line++;
+                    }
+                }
+            } else if (c != ' ' && c != '\t' && c != '\r') {
+                return c;
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (bufferPosition == bufferLength && !fill()) {
+            return EOF;
+        }
+        return buffer[bufferPosition++] & 0xFF;
+    }
+
+    private int peek() throws IOException {
+        if (bufferPosition == bufferLength && !fill()) {
+            return EOF;
+        }
+        return buffer[bufferPosition] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            return false;
+        }
+        bufferLength = n;
+        bufferPosition = 0;
+        return true;
+    }
+}
@@ -0,0 +1,211 @@
+package spaceexplorers.core;
+
+import spaceexplorers.publicapi.IEvent;
+import spaceexplorers.publicapi.IForwardModel;
+import spaceexplorers.publicapi.Owner;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A forkable copy of a game, played forward with the same {@link PlanetState} rules as the engine but without strategies.
+ */
+final class ForwardModel implements IForwardModel {
+    private final PlanetState state;
+    private final InternalPlayer self;
+    private int turn;
+    private boolean over;
+    private InternalPlayer winner;
+
+    /**
+     * @param state A state owned by this model alone
+     * @param self  The player the model was taken for
+     * @param turn  The tick the game was on when the model was taken
+     */
+    ForwardModel(PlanetState state, InternalPlayer self, int turn) {
+        assert self != InternalPlayer.NEUTRAL;
+        this.state = state;
+        this.self = self;
+        this.turn = turn;
+    }
+
+    private ForwardModel(ForwardModel other) {
+        this.state = other.state.copy();
+        this.self = other.self;
+        this.turn = other.turn;
+        this.over = other.over;
+        this.winner = other.winner;
+    }
+
+    @Override
+    public IForwardModel copy() {
+        return new ForwardModel(this);
+    }
+
+    /**
+     * Writes the model, for {@link #read(DataInput)} to rebuild in a {@link StrategyHost}.
+     */
+    void write(DataOutput out) throws IOException {
+        state.write(out);
+        out.writeByte(self.ordinal());
+        StrategyProtocol.writeVarLong(out, turn);
+        out.writeBoolean(over);
+        out.writeByte(winner == null ? -1 : winner.ordinal());
+    }
+
+    static ForwardModel read(DataInput in) throws IOException {
+        PlanetState state = PlanetState.read(in);
+        InternalPlayer self = InternalPlayer.values()[in.readByte()];
+        ForwardModel model = new ForwardModel(state, self, (int) StrategyProtocol.readVarLong(in));
+        model.over = in.readBoolean();
+        byte winner = in.readByte();
+        model.winner = winner < 0 ? null : InternalPlayer.values()[winner];
+        return model;
+    }
+
+    @Override
+    public boolean transferPeople(Owner player, int fromId, int toId, long numPeople) {
+        return !over && launch(toPlayer(player), fromId, toId, numPeople);
+    }
+
+    @Override
+    public boolean apply(IEvent event) {
+        if (over) {
+            return false;
+        }
+        if (event instanceof Shuttle) {
+            Shuttle shuttle = (Shuttle) event;
+            return launch(shuttle.getOwningPlayer(), shuttle.getSourcePlanetId(), shuttle.getDestinationPlanetId(), shuttle.getNumberPeople());
+        }
+        if (event instanceof StrategyProtocol.Transfer) {
+            // What a strategy in a host queues in place of a shuttle; it can only have been made for the model's player
+            StrategyProtocol.Transfer transfer = (StrategyProtocol.Transfer) event;
+            return launch(self, transfer.getFrom(), transfer.getTo(), transfer.getPeople());
+        }
+        return false;
+    }
+
+    private boolean launch(InternalPlayer player, int fromId, int toId, long numPeople) {
+        int from = state.indexOf(fromId);
+        int to = state.indexOf(toId);
+        if (from < 0 || to < 0 || from == to || numPeople <= 0) {
+            return false;
+        }
+        int distance = state.getEdgeLength(from, to);
+        if (distance < 0 || !state.depart(from, player, numPeople)) {
+            return false;
+        }
+        state.getShuttles().launch(from, to, player, numPeople, distance, turn);
+        return true;
+    }
+
+    @Override
+    public void step(int ticks) {
+        for (int tick = 0; tick < ticks && !over; tick++) {
+            // Same order of events as SpaceExplorers.gameTick
+            if (turn > SpaceExplorers.MAX_TURNS) {
+                winner = majorityPopulation();
+                over = true;
+                return;
+            }
+            turn++;
+            state.advance(turn);
+            if (hasWon(InternalPlayer.PLAYER1)) {
+                winner = InternalPlayer.PLAYER1;
+                over = true;
+            } else if (hasWon(InternalPlayer.PLAYER2)) {
+                winner = InternalPlayer.PLAYER2;
+                over = true;
+            }
+        }
+    }
+
+    private boolean hasWon(InternalPlayer player) {
+        // The opponent could own any planet hidden from the model, so it can't tell that they have been wiped out
+        if (player == self && state.isMasked()) {
+            return false;
+        }
+        InternalPlayer opponent = player == InternalPlayer.PLAYER1 ? InternalPlayer.PLAYER2 : InternalPlayer.PLAYER1;
+        return state.getOwnedPlanets(opponent) == 0 && state.getShuttlesInFlight(opponent) == 0;
+    }
+
+    private InternalPlayer majorityPopulation() {
+        long p1 = state.getPopulation(InternalPlayer.PLAYER1);
+        long p2 = state.getPopulation(InternalPlayer.PLAYER2);
+        if (p1 > p2) {
+            return InternalPlayer.PLAYER1;
+        } else if (p1 < p2) {
+            return InternalPlayer.PLAYER2;
+        } else {
+            return InternalPlayer.NEUTRAL;
+        }
+    }
+
+    @Override
+    public int getTurn() {
+        return turn;
+    }
+
+    @Override
+    public boolean isOver() {
+        return over;
+    }
+
+    @Override
+    public Owner getWinner() {
+        return over ? toOwner(winner) : null;
+    }
+
+    @Override
+    public Owner getOwner(int planetId) {
+        return toOwner(state.getOwningPlayer(row(planetId)));
+    }
+
+    @Override
+    public long getPopulation(int planetId, Owner player) {
+        int index = row(planetId);
+        return toPlayer(player) == InternalPlayer.PLAYER1 ? state.getP1Population(index) : state.getP2Population(index);
+    }
+
+    @Override
+    public long getTotalPopulation(int planetId) {
+        return state.getTotalPopulation(row(planetId));
+    }
+
+    @Override
+    public long getPopulation(Owner player) {
+        return state.getPopulation(toPlayer(player));
+    }
+
+    @Override
+    public int getOwnedPlanets(Owner player) {
+        return state.getOwnedPlanets(toPlayer(player));
+    }
+
+    private int row(int planetId) {
+        int index = state.indexOf(planetId);
+        if (index < 0) {
+            throw new IllegalArgumentException("No planet with id " + planetId);
+        }
+        return index;
+    }
+
+    private InternalPlayer toPlayer(Owner owner) {
+        switch (owner) {
+            case SELF:
+                return self;
+            case OPPONENT:
+                return self == InternalPlayer.PLAYER1 ? InternalPlayer.PLAYER2 : InternalPlayer.PLAYER1;
+            default:
+                throw new IllegalArgumentException("Only players can own people");
+        }
+    }
+
+    private Owner toOwner(InternalPlayer player) {
+        if (player == InternalPlayer.NEUTRAL) {
+            return Owner.NEUTRAL;
+        }
+        return player == self ? Owner.SELF : Owner.OPPONENT;
+    }
+}
@@ -0,0 +1,178 @@
+package spaceexplorers.core;
+
+import spaceexplorers.publicapi.IStrategy;
+import spaceexplorers.strategies.NoOpStrategy;
+import spaceexplorers.strategies.RandomStrategy;
+import spaceexplorers.strategies.StudentStrategy;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures how many headless games a machine can play, by playing a fixed corpus of them on 1 to N threads.
+ * <p>
+ * The corpus is every ordered pairing of the built-in strategies on every map in {@code graphs/}, each game
+ * {@link SpaceExplorers#setSeed(long) seeded} from the one given, so the same seed plays the same games on any machine. The outcomes are digested,
+ * so that runs which ought to have played the same games can be checked to have done so.
+ * <p>
+ * Usage: {@code GameThroughput [threads] [seed]}
+ */
+public final class GameThroughput {
+    private static final String[] STRATEGIES = {"NoOpStrategy", "RandomStrategy", "StudentStrategy"};
+    private static final long DEFAULT_SEED = 42;
+
+    private GameThroughput() {
+    }
+
+    public static void main(String[] args) throws FileNotFoundException, InterruptedException, ExecutionException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_SEED;
+
+        List<Game> corpus = corpus(seed);
+        System.out.printf("Corpus: %d games, %d strategies on %d maps, seed %d%n", corpus.size(), STRATEGIES.length,
+                corpus.size() / (STRATEGIES.length * (STRATEGIES.length - 1)), seed);
+
+        // Once through untimed, so that every run is measured with the code compiled and the maps loaded
+        play(corpus, maxThreads);
+
+        System.out.println("Threads  Games/s   Ticks/s  Tick p50 us  Tick p99 us  KB/game  Digest");
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            long start = System.nanoTime();
+            List<Result> results = play(corpus, threads);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            Histogram tickTimes = new Histogram();
+            Histogram allocated = new Histogram();
+            long ticks = 0;
+            long digest = 1;
+            for (Result result : results) {
+                tickTimes.add(result.tickTimes);
+                allocated.record(result.allocatedBytes);
+                ticks += result.ticks;
+                digest = 31 * digest + result.outcome;
+            }
+            System.out.printf("%7d  %7.1f  %8.0f  %11.1f  %11.1f  %7.0f  %016x%n", threads, results.size() / seconds,
+                    ticks / seconds, tickTimes.getPercentile(50) / 1e3, tickTimes.getPercentile(99) / 1e3,
+                    allocated.getMean() / 1024, digest);
+        }
+        if (InvariantChecker.ENABLED) {
+            System.out.printf("Invariant violations: %d%n", InvariantChecker.getViolationCount());
+        }
+    }
+
+    /**
+     * Lays out the games in a fixed order, drawing each one's seed in turn.
+     */
+    private static List<Game> corpus(long seed) {
+        String[] graphs = Assets.getGraphs();
+        Arrays.sort(graphs);
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Game> corpus = new ArrayList<>();
+        for (String graph : graphs) {
+            String map = graph.replaceAll(".dot", "");
+            for (String strategy1 : STRATEGIES) {
+                for (String strategy2 : STRATEGIES) {
+                    if (!strategy1.equals(strategy2)) {
+                        corpus.add(new Game(map, strategy1, strategy2, random.nextLong()));
+                    }
+                }
+            }
+        }
+        return corpus;
+    }
+
+    /**
+     * @return The results in the corpus' order, whatever order the games finished in
+     */
+    private static List<Result> play(List<Game> corpus, int threads) throws InterruptedException, ExecutionException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (Game game : corpus) {
+                futures.add(pool.submit(game::play));
+            }
+            List<Result> results = new ArrayList<>();
+            for (Future<Result> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static IStrategy newStrategy(String name) {
+        switch (name) {
+            case "NoOpStrategy":
+                return new NoOpStrategy();
+            case "RandomStrategy":
+                return new RandomStrategy();
+            case "StudentStrategy":
+                return new StudentStrategy();
+            default:
+                throw new IllegalArgumentException("Unknown strategy " + name);
+        }
+    }
+
+    private static final class Game {
+        private final String map;
+        private final String strategy1;
+        private final String strategy2;
+        private final long seed;
+
+        private Game(String map, String strategy1, String strategy2, long seed) {
+            this.map = map;
+            this.strategy1 = strategy1;
+            this.strategy2 = strategy2;
+            this.seed = seed;
+        }
+
+        /**
+         * Plays the game out on the current thread, timing every tick. Strategies take their turns inline, so the
+         * thread's allocation is the whole game's.
+         */
+        private Result play() throws FileNotFoundException {
+            ThreadMeter meter = new ThreadMeter();
+            meter.start();
+            SpaceExplorers game = new SpaceExplorers(newStrategy(strategy1), newStrategy(strategy2), map, false);
+            game.setSeed(seed);
+            Histogram tickTimes = new Histogram();
+            while (!game.isOver()) {
+                int turns = game.getTurns();
+                long start = System.nanoTime();
+                game.gameTick();
+                long elapsed = System.nanoTime() - start;
+                // The call which finds the game over doesn't play a tick
+                if (game.getTurns() != turns) {
+                    tickTimes.record(elapsed);
+                }
+            }
+            meter.stop();
+            long outcome = 31 * game.getTurns() + game.getWinner().ordinal();
+            outcome = 31 * outcome + game.getPopulation(InternalPlayer.PLAYER1);
+            outcome = 31 * outcome + game.getPopulation(InternalPlayer.PLAYER2);
+            return new Result(game.getTurns(), tickTimes, meter.getAllocatedBytes(), outcome);
+        }
+    }
+
+    private static final class Result {
+        private final int ticks;
+        private final Histogram tickTimes;
+        private final long allocatedBytes;
+        private final long outcome;
+
+        private Result(int ticks, Histogram tickTimes, long allocatedBytes, long outcome) {
+            this.ticks = ticks;
+            this.tickTimes = tickTimes;
+            this.allocatedBytes = allocatedBytes;
+            this.outcome = outcome;
+        }
+    }
+}
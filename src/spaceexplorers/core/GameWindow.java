@@ -9,6 +9,7 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.Random;
 
 public final class GameWindow extends JFrame {
@@ -31,6 +32,7 @@ public final class GameWindow extends JFrame {
     private JComboBox graphSelector;
     private JPanel randomGraphPane;
     private JButton randomGraphButton;
+    private JCheckBox simultaneousBox;
 
     // GUI swings
     private JPanel uiLayout;
@@ -60,6 +62,12 @@ public final class GameWindow extends JFrame {
     static final int SPACE_EXPLORERS_WIDTH = 1000;
     static final int SPACE_EXPLORERS_HEIGHT = 950;
 
+    // Generated graphs are saved under this name, on a board the same size as the bundled graphs
+    private static final String RANDOM_GRAPH = "random";
+    private static final int RANDOM_GRAPH_SIDE = 10;
+    private static final int RANDOM_GRAPH_MIN_PLANETS = 12;
+    private static final int RANDOM_GRAPH_MAX_PLANETS = 24;
+
     public GameWindow() throws FileNotFoundException {
         setSize(GAME_WINDOW_WIDTH, GAME_WINDOW_HEIGHT);
         add(main);
@@ -128,6 +136,7 @@ public final class GameWindow extends JFrame {
 
         String graph = String.valueOf(graphSelector.getSelectedItem());
         SpaceExplorers spaceExplorers = new SpaceExplorers(player1, player2, graph);
+        spaceExplorers.setSimultaneousMoves(simultaneousBox.isSelected());
 
         // If there is an existing gameFrame, we are restarting and need to cancel the old one.
         // If we don't cancel it, it will continue trying to draw and crash when it is removed from the window.
@@ -202,6 +211,7 @@ public final class GameWindow extends JFrame {
     private void toggleGraphSelectors(boolean enable) {
         graphSelector.setEnabled(enable);
         randomGraphButton.setEnabled(enable);
+        simultaneousBox.setEnabled(enable);
     }
 
     private void initSelectors() {
@@ -259,10 +269,36 @@ public final class GameWindow extends JFrame {
         randomGraphButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
+                // Generate a fresh map, with an even number of planets so that it fits the board
                 Random rand = new Random();
-                graphSelector.setSelectedIndex(rand.nextInt(graphs.length));
+                MapGenerator generator = new MapGenerator(rand.nextLong());
+                int planets = 2 * (RANDOM_GRAPH_MIN_PLANETS / 2 + rand.nextInt((RANDOM_GRAPH_MAX_PLANETS - RANDOM_GRAPH_MIN_PLANETS) / 2 + 1));
+                try {
+                    SystemLoader.saveGraph(RANDOM_GRAPH, generator.generate(planets, RANDOM_GRAPH_SIDE));
+                } catch (IOException e1) {
+                    e1.printStackTrace();
+                    return;
+                }
+
+                if (((DefaultComboBoxModel<?>) graphSelector.getModel()).getIndexOf(RANDOM_GRAPH) < 0) {
+                    graphSelector.addItem(RANDOM_GRAPH);
+                }
+                // Always starts a new game, even if the random graph was already selected
+                graphSelector.setSelectedItem(RANDOM_GRAPH);
                 gameFrame.repaint();
             }
         });
+
+        simultaneousBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                try {
+                    initGame();
+                    gameFrame.repaint();
+                } catch (FileNotFoundException e1) {
+                    e1.printStackTrace();
+                }
+            }
+        });
     }
 }
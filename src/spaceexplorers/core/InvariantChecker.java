@@ -0,0 +1,154 @@
+package spaceexplorers.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks that planets stay consistent as a tick plays out: no negative populations, the players' populations adding up
+ * to the total, and the owner being whoever has the majority.
+ * <p>
+ * The rules only keep to the last two in part. Landing on a neutral planet caps the total but not the players'
+ * populations, so {@link PlanetState} keeps track of the planets such landings have left miscounted, and they are let
+ * off until another neutral landing sets them right; nothing else may set a planet's populations apart. And landing
+ * can leave a planet with an owner who is outnumbered on it, until growth decides the owner afresh, so owners are only
+ * checked after {@link PlanetState#grow(int)}.
+ * <p>
+ * The mode is read once, from the {@code spaceexplorers.invariants} system property: {@code off} (the default),
+ * {@code count} or {@code fail-fast}. Since it is a constant, the checks compile away entirely while they are off, and a
+ * tick costs nothing for them. When counting, each violation is counted and passed to the sink, and play carries on;
+ * when failing fast, the first is passed to the sink and then thrown.
+ * Forward models are checked too, as they play ticks the same way.
+ */
+final class InvariantChecker {
+    enum Mode {
+        OFF,
+        COUNT,
+        FAIL_FAST
+    }
+
+    static final Mode MODE = parseMode(System.getProperty("spaceexplorers.invariants", "off"));
+    static final boolean ENABLED = MODE != Mode.OFF;
+
+    private static final AtomicLong VIOLATIONS = new AtomicLong();
+    private static volatile Sink sink = violation -> System.err.println(violation);
+
+    private InvariantChecker() {
+    }
+
+    /**
+     * Receives violations as they are found, from whichever thread found them.
+     */
+    interface Sink {
+        void report(Violation violation);
+    }
+
+    static void setSink(Sink sink) {
+        InvariantChecker.sink = sink;
+    }
+
+    /**
+     * @return The number of violations found so far, by every game
+     */
+    static long getViolationCount() {
+        return VIOLATIONS.get();
+    }
+
+    /**
+     * Checks a planet's populations after a phase of a tick. Callers should only call this if {@link #ENABLED}.
+     *
+     * @param phase The phase just played, for context
+     */
+    static void check(PlanetState state, int index, int tick, String phase) {
+        long total = state.getTotalPopulation(index);
+        long p1 = state.getP1Population(index);
+        long p2 = state.getP2Population(index);
+        if (p1 < 0 || p2 < 0) {
+            violated(new Violation("negative population", state, index, tick, phase));
+        }
+        if (p1 + p2 != total && !state.isMiscounted(index)) {
+            violated(new Violation("populations don't add up to the total", state, index, tick, phase));
+        }
+    }
+
+    /**
+     * Checks a planet's owner, after a phase of a tick which decides it. Callers should only call this if
+     * {@link #ENABLED}.
+     *
+     * @param phase The phase just played, for context
+     */
+    static void checkOwner(PlanetState state, int index, int tick, String phase) {
+        long p1 = state.getP1Population(index);
+        long p2 = state.getP2Population(index);
+        InternalPlayer majority = p1 > p2 ? InternalPlayer.PLAYER1 : p1 < p2 ? InternalPlayer.PLAYER2 : InternalPlayer.NEUTRAL;
+        if (state.getOwningPlayer(index) != majority) {
+            violated(new Violation("owner doesn't have the majority", state, index, tick, phase));
+        }
+    }
+
+    private static void violated(Violation violation) {
+        VIOLATIONS.incrementAndGet();
+        sink.report(violation);
+        if (MODE == Mode.FAIL_FAST) {
+            throw new IllegalStateException(violation.toString());
+        }
+    }
+
+    private static Mode parseMode(String mode) {
+        switch (mode) {
+            case "off":
+                return Mode.OFF;
+            case "count":
+                return Mode.COUNT;
+            case "fail-fast":
+                return Mode.FAIL_FAST;
+            default:
+                throw new IllegalArgumentException("spaceexplorers.invariants must be off, count or fail-fast, not " + mode);
+        }
+    }
+
+    /**
+     * An invariant found broken, along with the planet as it was at the time.
+     */
+    static final class Violation {
+        private final String invariant;
+        private final int tick;
+        private final String phase;
+        private final int planetId;
+        private final long totalPopulation;
+        private final long p1Population;
+        private final long p2Population;
+        private final InternalPlayer owner;
+
+        private Violation(String invariant, PlanetState state, int index, int tick, String phase) {
+            this.invariant = invariant;
+            this.tick = tick;
+            this.phase = phase;
+            this.planetId = state.getId(index);
+            this.totalPopulation = state.getTotalPopulation(index);
+            this.p1Population = state.getP1Population(index);
+            this.p2Population = state.getP2Population(index);
+            this.owner = state.getOwningPlayer(index);
+        }
+
+        String getInvariant() {
+            return invariant;
+        }
+
+        int getTick() {
+            return tick;
+        }
+
+        String getPhase() {
+            return phase;
+        }
+
+        int getPlanetId() {
+            return planetId;
+        }
+
+        @Override
+        public String toString() {
+            return "Tick " + tick + ", after " + phase + ", planet " + planetId + ": " + invariant + " (total: "
+                    + totalPopulation + ", P1: " + p1Population + ", P2: " + p2Population + ", owner: " + owner + ")";
+        }
+    }
+}
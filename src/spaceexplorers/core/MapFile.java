@@ -0,0 +1,153 @@
+package spaceexplorers.core;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes maps in a compact binary format, which loads far faster than DOT for large maps.
+ * <p>
+ * The file is little-endian, and laid out as:
+ * <pre>
+ *   header     magic "SEXM", version, planet count, adjacency count        (4 ints)
+ *   planets    one fixed-width record per row, in ascending id order:
+ *                id, habitability, size (long), x, y, owner, adjacency start (32 bytes)
+ *   adjacency  the neighbouring row of each adjacency entry                (ints)
+ *   lengths    the length of each adjacency entry                          (ints)
+ * </pre>
+ * The owner is the ordinal of the {@link InternalPlayer} whose homeworld the planet is. The adjacency is the
+ * {@link MapTemplate}'s compressed sparse row index, so every edge is listed from both ends. Files are memory mapped
+ * and the adjacency is bulk copied straight out of the mapping, so opening a map is dominated by one pass over its
+ * planet records.
+ */
+final class MapFile {
+    static final String EXTENSION = ".map";
+
+    private static final int MAGIC = 0x4D584553; // "SEXM"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES;
+    private static final int RECORD_BYTES = 32;
+
+    private MapFile() {
+    }
+
+    /**
+     * @throws FileNotFoundException If the file does not exist
+     * @throws IOException           If the file could not be read, or is not a map
+     */
+    static MapTemplate read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_BYTES) {
+                throw new IOException(file + " is not a map");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a map");
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException(file + " has unsupported version " + buffer.getInt(4));
+            }
+            int count = buffer.getInt(8);
+            int adjacencyCount = buffer.getInt(12);
+            long adjacencyOffset = HEADER_BYTES + (long) count * RECORD_BYTES;
+            if (count < 0 || adjacencyCount < 0 || length != adjacencyOffset + 2L * adjacencyCount * Integer.BYTES) {
+                throw new IOException(file + " is truncated or corrupt");
+            }
+
+            int[] ids = new int[count];
+            int[] habitability = new int[count];
+            long[] size = new long[count];
+            int[] x = new int[count];
+            int[] y = new int[count];
+            byte[] owningPlayer = new byte[count];
+            int[] adjacencyStart = new int[count + 1];
+            for (int i = 0, at = HEADER_BYTES; i < count; i++, at += RECORD_BYTES) {
+                ids[i] = buffer.getInt(at);
+                habitability[i] = buffer.getInt(at + 4);
+                size[i] = buffer.getLong(at + 8);
+                x[i] = buffer.getInt(at + 16);
+                y[i] = buffer.getInt(at + 20);
+                owningPlayer[i] = (byte) buffer.getInt(at + 24);
+                adjacencyStart[i] = buffer.getInt(at + 28);
+            }
+            adjacencyStart[count] = adjacencyCount;
+
+            int[] adjacency = new int[adjacencyCount];
+            int[] adjacencyLength = new int[adjacencyCount];
+            buffer.position((int) adjacencyOffset);
+            IntBuffer ints = buffer.asIntBuffer();
+            ints.get(adjacency);
+            ints.get(adjacencyLength);
+
+            try {
+                return MapTemplate.fromAdjacency(ids, habitability, size, owningPlayer, x, y, adjacencyStart, adjacency, adjacencyLength);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(file + " is corrupt", e);
+            }
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(file.toString());
+        }
+    }
+
+    static void write(MapTemplate template, File file) throws IOException {
+        int count = template.count;
+        int adjacencyCount = template.adjacency.length;
+        long length = HEADER_BYTES + (long) count * RECORD_BYTES + 2L * adjacencyCount * Integer.BYTES;
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Map is too large to write as a single file");
+        }
+
+        Path path = file.toPath();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(count);
+            buffer.putInt(adjacencyCount);
+            for (int i = 0; i < count; i++) {
+                buffer.putInt(template.ids[i]);
+                buffer.putInt(template.habitability[i]);
+                buffer.putLong(template.size[i]);
+                buffer.putInt(template.x[i]);
+                buffer.putInt(template.y[i]);
+                buffer.putInt(template.owningPlayer[i]);
+                buffer.putInt(template.adjacencyStart[i]);
+            }
+            IntBuffer ints = buffer.asIntBuffer();
+            ints.put(template.adjacency);
+            ints.put(template.adjacencyLength);
+            buffer.force();
+        }
+    }
+
+    /**
+     * Converts DOT graphs to binary maps, written alongside them. Converts every graph if none are named.
+     */
+    public static void main(String[] args) throws IOException {
+        String[] graphs = args;
+        if (graphs.length == 0) {
+            graphs = Assets.getGraphs();
+            for (int i = 0; i < graphs.length; i++) {
+                graphs[i] = graphs[i].substring(0, graphs[i].length() - ".dot".length());
+            }
+        }
+        for (String graph : graphs) {
+            File file = Assets.getMapFile(graph);
+            write(SystemLoader.parse(graph), file);
+            System.out.println("Wrote " + file);
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package spaceexplorers.core;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates random maps which are fair to both players, from a handful of planets up to millions.
+ * <p>
+ * Planets sit on distinct cells of a square grid, with coordinates from 1 to the side of the grid, the same way map
+ * files lay them out. Every map is symmetric through the centre of the grid: each planet has a mirror image with the
+ * same habitability and size, every edge has a mirror image of the same length, and the two homeworlds are mirror
+ * images of each other. Ids run across the grid row by row, so the mirror image of planet {@code id} is planet
+ * {@code count - 1 - id}.
+ * <p>
+ * Each half of the map is connected by joining every planet to the nearest planet before it in id order, plus a few
+ * more edges to other nearby planets; the halves are then joined across the centre. Work and memory grow linearly with
+ * the number of planets and the area of the grid.
+ */
+final class MapGenerator {
+    private static final int SEARCH_RADIUS = 3; // How far around a planet to look for neighbours
+
+    private final Random random;
+    private final int[] nearby = new int[(SEARCH_RADIUS + 1) * (2 * SEARCH_RADIUS + 1)];
+
+    private int minHabitability = 1;
+    private int maxHabitability = 10;
+    private long minSize = 50;
+    private long maxSize = 500;
+    private int minEdgeLength = 1;
+    private int maxEdgeLength = 7;
+    private double density = 0.2;
+    private double extraEdges = 0.8;
+
+    public MapGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Sets the range habitability is drawn from, uniformly.
+     */
+    public void setHabitability(int min, int max) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("Bad habitability range");
+        }
+        this.minHabitability = min;
+        this.maxHabitability = max;
+    }
+
+    /**
+     * Sets the range planet sizes are drawn from, uniformly.
+     */
+    public void setSize(long min, long max) {
+        if (min < 1 || max < min) {
+            throw new IllegalArgumentException("Bad size range");
+        }
+        this.minSize = min;
+        this.maxSize = max;
+    }
+
+    /**
+     * Sets the range edge lengths are drawn from, uniformly.
+     */
+    public void setEdgeLength(int min, int max) {
+        if (min < 1 || max < min) {
+            throw new IllegalArgumentException("Bad edge length range");
+        }
+        this.minEdgeLength = min;
+        this.maxEdgeLength = max;
+    }
+
+    /**
+     * Sets the fraction of grid cells which hold a planet when the grid is sized automatically.
+     */
+    public void setDensity(double density) {
+        if (!(density > 0 && density <= 1)) {
+            throw new IllegalArgumentException("Density must be in (0, 1]");
+        }
+        this.density = density;
+    }
+
+    /**
+     * Sets the average number of edges each planet has beyond the ones needed to connect the map.
+     */
+    public void setExtraEdges(double extraEdges) {
+        if (extraEdges < 0) {
+            throw new IllegalArgumentException("Extra edges must be non-negative");
+        }
+        this.extraEdges = extraEdges;
+    }
+
+    /**
+     * Generates a map on a grid sized to fit the planets at the configured density.
+     */
+    public MapTemplate generate(int planets) {
+        return generate(planets, (int) Math.ceil(Math.sqrt(planets / density)));
+    }
+
+    /**
+     * Generates a map on a grid of the given side. The side is grown by one if an odd number of planets needs a centre
+     * cell that an even side doesn't have.
+     *
+     * @param planets The number of planets, at least 2
+     * @param side    The number of cells along each side of the grid
+     */
+    public MapTemplate generate(int planets, int side) {
+        if (planets < 2) {
+            throw new IllegalArgumentException("A map needs at least 2 planets");
+        }
+        if (planets % 2 == 1 && side % 2 == 0) {
+            side++;
+        }
+        if ((long) side * side < planets) {
+            throw new IllegalArgumentException(planets + " planets do not fit on a grid of side " + side);
+        }
+        if ((long) side * side > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Grid is too large");
+        }
+        int cells = side * side;
+        int half = planets / 2;
+
+        // Choose the cells of the first half, in row-major order, from the cells before their mirror images; the
+        // rest of the map is their mirror image, plus the centre cell if there is an odd number of planets
+        int[] cell = new int[planets];
+        int candidates = cells / 2;
+        int chosen = 0;
+        for (int c = 0; c < candidates && chosen < half; c++) {
+            if (random.nextInt(candidates - c) < half - chosen) {
+                cell[chosen++] = c;
+            }
+        }
+        if (planets % 2 == 1) {
+            cell[half] = cells / 2;
+        }
+        for (int id = 0; id < half; id++) {
+            cell[planets - 1 - id] = cells - 1 - cell[id];
+        }
+
+        int[] ids = new int[planets];
+        int[] habitability = new int[planets];
+        long[] size = new long[planets];
+        int[] x = new int[planets];
+        int[] y = new int[planets];
+        byte[] owningPlayer = new byte[planets];
+        Arrays.fill(owningPlayer, (byte) InternalPlayer.NEUTRAL.ordinal());
+        for (int id = 0; id < planets; id++) {
+            ids[id] = id;
+            x[id] = cell[id] % side + 1;
+            y[id] = cell[id] / side + 1;
+        }
+        for (int id = 0; id <= (planets - 1) / 2; id++) {
+            int mirror = planets - 1 - id;
+            habitability[id] = habitability[mirror] = minHabitability + random.nextInt(maxHabitability - minHabitability + 1);
+            size[id] = size[mirror] = minSize + (long) (random.nextDouble() * (maxSize - minSize + 1));
+        }
+
+        // The homeworlds are a random planet from the outer half of the first half, and its mirror image
+        int homeworld = random.nextInt(Math.max(1, half / 2));
+        owningPlayer[homeworld] = (byte) InternalPlayer.PLAYER1.ordinal();
+        owningPlayer[planets - 1 - homeworld] = (byte) InternalPlayer.PLAYER2.ordinal();
+
+        // Planets by cell, so that neighbours can be found without a search over the whole map
+        int[] planetAt = new int[cells];
+        Arrays.fill(planetAt, -1);
+        for (int id = 0; id < planets; id++) {
+            planetAt[cell[id]] = id;
+        }
+
+        EdgeList edges = new EdgeList(planets * 2);
+        for (int id = 1; id < half; id++) {
+            int nearest = nearestBefore(id, side, planetAt, x, y);
+            link(edges, planets, id, nearest < 0 ? id - 1 : nearest);
+
+            // Further edges to other earlier planets nearby
+            double extra = extraEdges;
+            while (extra > 0 && random.nextDouble() < extra) {
+                int other = randomBefore(id, side, planetAt, x, y);
+                if (other >= 0 && other != nearest && !edges.hasEdgeFrom(id, other)) {
+                    link(edges, planets, id, other);
+                }
+                extra -= 1;
+            }
+        }
+
+        // Join the halves across the centre, through the centre planet if there is one
+        if (planets % 2 == 1) {
+            link(edges, planets, half, half - 1);
+        } else {
+            link(edges, planets, half - 1, half);
+        }
+        for (int id = 0; id < half - 1; id++) {
+            int mirror = planets - 1 - id;
+            if (Math.abs(x[id] - x[mirror]) + Math.abs(y[id] - y[mirror]) <= SEARCH_RADIUS && random.nextDouble() < 0.5) {
+                link(edges, planets, id, mirror);
+            }
+        }
+
+        return edges.compile(ids, habitability, size, owningPlayer, x, y);
+    }
+
+    /**
+     * Adds an edge along with its mirror image, unless the edge is its own mirror image.
+     */
+    private void link(EdgeList edges, int planets, int from, int to) {
+        int length = randomLength();
+        edges.add(from, to, length);
+        int mirrorFrom = planets - 1 - from;
+        int mirrorTo = planets - 1 - to;
+        if (!(mirrorFrom == to && mirrorTo == from) && !(mirrorFrom == from && mirrorTo == to)) {
+            edges.add(mirrorFrom, mirrorTo, length);
+        }
+    }
+
+    private int randomLength() {
+        return minEdgeLength + random.nextInt(maxEdgeLength - minEdgeLength + 1);
+    }
+
+    /**
+     * @return The closest planet with a lower id within the search radius, or -1 if there is none
+     */
+    private static int nearestBefore(int id, int side, int[] planetAt, int[] x, int[] y) {
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int dy = -SEARCH_RADIUS; dy <= 0; dy++) {
+            for (int dx = -SEARCH_RADIUS; dx <= SEARCH_RADIUS; dx++) {
+                int other = planetNear(id, dx, dy, side, planetAt, x, y);
+                int distance = dx * dx + dy * dy;
+                if (other >= 0 && other < id && distance < bestDistance) {
+                    best = other;
+                    bestDistance = distance;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return A random planet with a lower id within the search radius, or -1 if there is none
+     */
+    private int randomBefore(int id, int side, int[] planetAt, int[] x, int[] y) {
+        int found = 0;
+        for (int dy = -SEARCH_RADIUS; dy <= 0; dy++) {
+            for (int dx = -SEARCH_RADIUS; dx <= SEARCH_RADIUS; dx++) {
+                int other = planetNear(id, dx, dy, side, planetAt, x, y);
+                if (other >= 0 && other < id) {
+                    nearby[found++] = other;
+                }
+            }
+        }
+        return found == 0 ? -1 : nearby[random.nextInt(found)];
+    }
+
+    private static int planetNear(int id, int dx, int dy, int side, int[] planetAt, int[] x, int[] y) {
+        int column = x[id] - 1 + dx;
+        int row = y[id] - 1 + dy;
+        if (column < 0 || column >= side || row < 0 || row >= side) {
+            return -1;
+        }
+        return planetAt[row * side + column];
+    }
+
+    /**
+     * Edges in the order they were generated, each listed once.
+     */
+    private static final class EdgeList {
+        private int count;
+        private int[] from;
+        private int[] to;
+        private int[] length;
+
+        EdgeList(int capacity) {
+            this.from = new int[capacity];
+            this.to = new int[capacity];
+            this.length = new int[capacity];
+        }
+
+        void add(int a, int b, int edgeLength) {
+            if (count == from.length) {
+                from = Arrays.copyOf(from, count * 2);
+                to = Arrays.copyOf(to, count * 2);
+                length = Arrays.copyOf(length, count * 2);
+            }
+            from[count] = a;
+            to[count] = b;
+            length[count++] = edgeLength;
+        }
+
+        /**
+         * Checks the few most recent edges, which are the only ones a planet being linked can have yet.
+         */
+        boolean hasEdgeFrom(int a, int b) {
+            for (int e = count - 1; e >= 0 && from[e] >= a - 1 && e >= count - 64; e--) {
+                if (from[e] == a && to[e] == b) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        MapTemplate compile(int[] ids, int[] habitability, long[] size, byte[] owningPlayer, int[] x, int[] y) {
+            int planets = ids.length;
+            int[] adjacencyStart = new int[planets + 1];
+            for (int e = 0; e < count; e++) {
+                adjacencyStart[from[e] + 1]++;
+                adjacencyStart[to[e] + 1]++;
+            }
+            for (int i = 0; i < planets; i++) {
+                adjacencyStart[i + 1] += adjacencyStart[i];
+            }
+            int[] next = Arrays.copyOf(adjacencyStart, planets);
+            int[] adjacency = new int[2 * count];
+            int[] adjacencyLength = new int[2 * count];
+            for (int e = 0; e < count; e++) {
+                adjacency[next[from[e]]] = to[e];
+                adjacencyLength[next[from[e]]++] = length[e];
+                adjacency[next[to[e]]] = from[e];
+                adjacencyLength[next[to[e]]++] = length[e];
+            }
+            return MapTemplate.fromAdjacency(ids, habitability, size, owningPlayer, x, y, adjacencyStart, adjacency, adjacencyLength);
+        }
+    }
+
+    /**
+     * Generates a map and saves it, as DOT or as a binary map if the file name ends in {@value MapFile#EXTENSION}.
+     * <p>
+     * Usage: {@code MapGenerator <planets> <file> [seed]}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: MapGenerator <planets> <file> [seed]");
+            System.exit(1);
+        }
+        int planets = Integer.parseInt(args[0]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+
+        long start = System.nanoTime();
+        MapTemplate template = new MapGenerator(seed).generate(planets);
+        long generated = System.nanoTime();
+        SystemLoader.save(args[1], template);
+        long saved = System.nanoTime();
+        System.out.printf("Generated %d planets and %d edges in %d ms, saved in %d ms%n", template.count,
+                template.adjacency.length / 2, (generated - start) / 1_000_000, (saved - generated) / 1_000_000);
+    }
+}
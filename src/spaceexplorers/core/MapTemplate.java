@@ -0,0 +1,252 @@
+package spaceexplorers.core;
+
+import spaceexplorers.publicapi.IEdge;
+import spaceexplorers.publicapi.IPlanet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A map as it stands before the first tick, compiled once and shared by every game played on it.
+ * <p>
+ * The template holds the starting value of every {@link PlanetState} column, along with everything that never changes
+ * during a game: ids, habitability, size, homeworlds and the adjacency index. {@link #instantiate(IPlanetLookup)} gives
+ * a game its own state by copying only the columns the simulation writes to. Nothing in a template is modified once
+ * it is built, so it can be used by several games on different threads at once.
+ * <p>
+ * Adjacency is kept in compressed sparse row form: the neighbours of row {@code i} are the rows
+ * {@code adjacency[adjacencyStart[i]]} up to (but not including) {@code adjacency[adjacencyStart[i + 1]]}. Each
+ * planet's edge set and bare snapshot are built from it the first time they are asked for, so very large maps can be
+ * opened without building millions of sets up front.
+ */
+final class MapTemplate {
+    private static final byte PLAYER1 = (byte) InternalPlayer.PLAYER1.ordinal();
+    private static final byte PLAYER2 = (byte) InternalPlayer.PLAYER2.ordinal();
+    private static final byte NEUTRAL = (byte) InternalPlayer.NEUTRAL.ordinal();
+
+    final int count;
+    final int[] ids;
+    final int[] habitability;
+    final long[] size;
+    final boolean[] homeworld;
+    final int[] x;
+    final int[] y;
+
+    // Starting values of the columns the simulation writes to
+    final byte[] owningPlayer;
+    final long[] totalPopulation;
+    final long[] p1Population;
+    final long[] p2Population;
+
+    final int[] indexById;
+    final int[] adjacencyStart;
+    final int[] adjacency;
+    final int[] adjacencyLength;
+
+    // Built on first use. Rows are immutable, so if two threads race to build one either copy will do
+    private final EdgeRow[] edgeRows;
+
+    /**
+     * Takes ownership of the arrays it is given, which must not be modified afterwards.
+     */
+    private MapTemplate(int[] ids, int[] habitability, long[] size, byte[] owningPlayer, int[] x, int[] y,
+                        int[] adjacencyStart, int[] adjacency, int[] adjacencyLength) {
+        this.count = ids.length;
+        this.ids = ids;
+        this.habitability = habitability;
+        this.size = size;
+        this.owningPlayer = owningPlayer;
+        this.x = x;
+        this.y = y;
+        this.adjacencyStart = adjacencyStart;
+        this.adjacency = adjacency;
+        this.adjacencyLength = adjacencyLength;
+        this.indexById = buildIndex(ids);
+
+        // Homeworlds start with a single person
+        this.homeworld = new boolean[count];
+        this.totalPopulation = new long[count];
+        this.p1Population = new long[count];
+        this.p2Population = new long[count];
+        for (int i = 0; i < count; i++) {
+            byte owner = owningPlayer[i];
+            if (owner < 0 || owner > NEUTRAL) {
+                throw new IllegalArgumentException("Unknown owner " + owner + " of planet " + ids[i]);
+            }
+            this.homeworld[i] = owner != NEUTRAL;
+            if (owner == PLAYER1) {
+                this.totalPopulation[i] = 1;
+                this.p1Population[i] = 1;
+            } else if (owner == PLAYER2) {
+                this.totalPopulation[i] = 1;
+                this.p2Population[i] = 1;
+            }
+        }
+
+        this.edgeRows = new EdgeRow[count];
+    }
+
+    /**
+     * Compiles a map from a list of edges, each of which goes both ways. Repeated edges are only kept once.
+     *
+     * @param ids             Planet ids, in ascending order; each planet's row is its position in this array
+     * @param owningPlayer    The player whose homeworld each planet is, or {@link InternalPlayer#NEUTRAL}
+     * @param edgeSource      The id of one end of each edge
+     * @param edgeDestination The id of the other end of each edge
+     * @param edgeLength      The length of each edge
+     */
+    static MapTemplate fromEdges(int[] ids, int[] habitability, long[] size, InternalPlayer[] owningPlayer, int[] x, int[] y,
+                                 int[] edgeSource, int[] edgeDestination, int[] edgeLength) {
+        int count = ids.length;
+        int[] indexById = buildIndex(ids);
+        byte[] owners = new byte[count];
+        for (int i = 0; i < count; i++) {
+            owners[i] = (byte) owningPlayer[i].ordinal();
+        }
+
+        // Edges are collected in the order given, into the same kind of sets planets have always kept them in, and
+        // each row's neighbours are listed in the order strategies see them
+        List<Set<Edge>> collected = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            collected.add(new HashSet<>());
+        }
+        for (int e = 0; e < edgeSource.length; e++) {
+            int source = rowOf(indexById, edgeSource[e]);
+            int destination = rowOf(indexById, edgeDestination[e]);
+            collected.get(source).add(new Edge(edgeSource[e], edgeDestination[e], edgeLength[e]));
+            collected.get(destination).add(new Edge(edgeDestination[e], edgeSource[e], edgeLength[e]));
+        }
+
+        int[] adjacencyStart = new int[count + 1];
+        List<Set<IEdge>> frozen = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            frozen.add(freeze(collected.get(i)));
+            adjacencyStart[i + 1] = adjacencyStart[i] + collected.get(i).size();
+        }
+        int[] adjacency = new int[adjacencyStart[count]];
+        int[] adjacencyLength = new int[adjacencyStart[count]];
+        for (int i = 0; i < count; i++) {
+            int k = adjacencyStart[i];
+            for (IEdge edge : frozen.get(i)) {
+                adjacency[k] = indexById[edge.getDestinationPlanetId()];
+                adjacencyLength[k++] = edge.getLength();
+            }
+        }
+
+        return new MapTemplate(ids.clone(), habitability.clone(), size.clone(), owners, x.clone(), y.clone(),
+                adjacencyStart, adjacency, adjacencyLength);
+    }
+
+    /**
+     * Wraps a map which is already in compressed sparse row form, without copying it. Each edge must be listed from
+     * both ends, with the same length.
+     *
+     * @param ids          Planet ids, in ascending order; each planet's row is its position in this array
+     * @param owningPlayer The ordinal of the {@link InternalPlayer} whose homeworld each planet is
+     */
+    static MapTemplate fromAdjacency(int[] ids, int[] habitability, long[] size, byte[] owningPlayer, int[] x, int[] y,
+                                     int[] adjacencyStart, int[] adjacency, int[] adjacencyLength) {
+        int count = ids.length;
+        if (adjacencyStart.length != count + 1 || adjacencyStart[0] != 0 || adjacencyStart[count] != adjacency.length
+                || adjacencyLength.length != adjacency.length) {
+            throw new IllegalArgumentException("Malformed adjacency index");
+        }
+        for (int i = 0; i < count; i++) {
+            if (adjacencyStart[i] > adjacencyStart[i + 1]) {
+                throw new IllegalArgumentException("Malformed adjacency index");
+            }
+        }
+        for (int neighbour : adjacency) {
+            if (neighbour < 0 || neighbour >= count) {
+                throw new IllegalArgumentException("Edge to unknown row " + neighbour);
+            }
+        }
+        return new MapTemplate(ids, habitability, size, owningPlayer, x, y, adjacencyStart, adjacency, adjacencyLength);
+    }
+
+    static int[] buildIndex(int[] ids) {
+        int maxId = -1;
+        for (int id : ids) {
+            if (id <= maxId) {
+                throw new IllegalArgumentException("Planet ids must be non-negative, distinct and in ascending order");
+            }
+            maxId = id;
+        }
+        int[] indexById = new int[maxId + 1];
+        Arrays.fill(indexById, -1);
+        for (int i = 0; i < ids.length; i++) {
+            indexById[ids[i]] = i;
+        }
+        return indexById;
+    }
+
+    private static int rowOf(int[] indexById, int id) {
+        int index = id >= 0 && id < indexById.length ? indexById[id] : -1;
+        if (index < 0) {
+            throw new IllegalArgumentException("Edge to unknown planet " + id);
+        }
+        return index;
+    }
+
+    /**
+     * Copies a planet's edges into a read-only set, sized the way snapshots have always copied them so that strategies
+     * see them in the same order.
+     */
+    private static Set<IEdge> freeze(Set<Edge> edges) {
+        Set<IEdge> frozen = new HashSet<>(edges.size());
+        frozen.addAll(edges);
+        return Collections.unmodifiableSet(frozen);
+    }
+
+    /**
+     * @return A new game's state, starting from this template
+     */
+    PlanetState instantiate(IPlanetLookup planetLookup) {
+        return new PlanetState(this, planetLookup);
+    }
+
+    Set<Edge> getEdges(int index) {
+        return edgeRow(index).edges;
+    }
+
+    Set<IEdge> getIEdges(int index) {
+        return edgeRow(index).snapshot.getSharedEdges();
+    }
+
+    /**
+     * @return The bare snapshot of a planet, as seen by a player who cannot see it
+     */
+    IPlanet getSnapshot(int index) {
+        return edgeRow(index).snapshot;
+    }
+
+    private EdgeRow edgeRow(int index) {
+        EdgeRow row = edgeRows[index];
+        if (row == null) {
+            Set<Edge> edges = new HashSet<>();
+            for (int k = adjacencyStart[index]; k < adjacencyStart[index + 1]; k++) {
+                edges.add(new Edge(ids[index], ids[adjacency[k]], adjacencyLength[k]));
+            }
+            row = new EdgeRow(Collections.unmodifiableSet(edges), new PlanetSnapshot(ids[index], freeze(edges)));
+            edgeRows[index] = row;
+        }
+        return row;
+    }
+
+    /**
+     * A planet's edges, and its bare snapshot which shares them.
+     */
+    private static final class EdgeRow {
+        private final Set<Edge> edges;
+        private final PlanetSnapshot snapshot;
+
+        private EdgeRow(Set<Edge> edges, PlanetSnapshot snapshot) {
+            this.edges = edges;
+            this.snapshot = snapshot;
+        }
+    }
+}
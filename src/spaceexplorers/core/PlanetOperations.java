@@ -3,11 +3,11 @@ package spaceexplorers.core;
 import spaceexplorers.publicapi.*;
 
 final class PlanetOperations implements IPlanetOperations {
-    private IPlanetLookup planetLookup;
+    private SpaceExplorers game;
     private InternalPlayer player;
 
-    public PlanetOperations(IPlanetLookup planetLookup, InternalPlayer player) {
-        this.planetLookup = planetLookup;
+    public PlanetOperations(SpaceExplorers game, InternalPlayer player) {
+        this.game = game;
         this.player = player;
     }
 
@@ -21,4 +21,9 @@ final class PlanetOperations implements IPlanetOperations {
         }
         return new Shuttle(from.getId(), to.getId(), this.player, numPeople, distance);
     }
+
+    @Override
+    public IForwardModel getForwardModel() {
+        return game.getForwardModel(this.player);
+    }
 }
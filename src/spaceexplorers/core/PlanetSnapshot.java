@@ -3,6 +3,7 @@ package spaceexplorers.core;
 import spaceexplorers.publicapi.IEdge;
 import spaceexplorers.publicapi.IPlanet;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -12,12 +13,18 @@ import java.util.Set;
  * This is a distinct class from {@link VisiblePlanetSnapshot} so that students cannot cast between them to get more information.
  */
 final class PlanetSnapshot implements IPlanet {
-    private int id;
-    private Set<IEdge> edges;
+    private final int id;
+    private final Set<IEdge> edges;
+    private final Set<IEdge> copy;
 
+    /**
+     * @param edges The planet's edges, as visible snapshots hand them out; must not be modifiable
+     */
     public PlanetSnapshot(int id, Set<IEdge> edges) {
         this.id = id;
         this.edges = edges;
+        // Bare snapshots have always handed out a copy, which can iterate in another order; it is made once and shared
+        this.copy = Collections.unmodifiableSet(new HashSet<>(edges));
     }
 
     @Override
@@ -27,6 +34,13 @@ final class PlanetSnapshot implements IPlanet {
 
     @Override
     public Set<IEdge> getEdges() {
-        return new HashSet<>(edges);
+        return copy;
+    }
+
+    /**
+     * @return The edges this snapshot was made from, in the order visible snapshots of the planet hand them out
+     */
+    Set<IEdge> getSharedEdges() {
+        return edges;
     }
 }
@@ -0,0 +1,681 @@
+package spaceexplorers.core;
+
+import spaceexplorers.publicapi.IPlanet;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Dense store for the mutable state of every planet in a game.
+ * <p>
+ * Each planet is a row, addressed by a dense index assigned at load time, and each attribute is a primitive column.
+ * The per-tick simulation ({@link #grow(int)}, {@link #land(int, long, long)} and {@link #shrink(int)}) runs directly
+ * over these columns, so a tick walks contiguous arrays rather than one heap object per planet. {@link Planet} is a
+ * thin view onto a single row.
+ * <p>
+ * Per-player aggregates (owned planets, population and shuttles in flight) are kept up to date as rows change, so
+ * win checks and population totals never need to scan the map. Likewise each player's {@link VisibilityIndex} is
+ * told about every change of owner and state, so building a player's snapshot only revisits the planets that changed.
+ * <p>
+ * Because everything the simulation touches is a primitive array, a game can be forked with {@link #copy()} or
+ * {@link #fork(InternalPlayer)} by cloning those arrays; columns that never change after loading are shared.
+ */
+final class PlanetState {
+    private static final InternalPlayer[] PLAYERS = InternalPlayer.values();
+    private static final byte PLAYER1 = (byte) InternalPlayer.PLAYER1.ordinal();
+    private static final byte PLAYER2 = (byte) InternalPlayer.PLAYER2.ordinal();
+    private static final byte NEUTRAL = (byte) InternalPlayer.NEUTRAL.ordinal();
+
+    private final int count;
+    private final int[] ids;
+    private int[] habitability;
+    private long[] size;
+    private long[] totalPopulation;
+    private long[] p1Population;
+    private long[] p2Population;
+    private byte[] owningPlayer;
+    private boolean[] homeworld;
+    private long[] arrivingP1;
+    private long[] arrivingP2;
+    private final ShuttleScheduler shuttles;
+
+    private final int[] ownedPlanets = new int[PLAYERS.length];
+    private long p1Total;
+    private long p2Total;
+    private boolean masked; // Set on forks which hid planets from their viewer
+
+    /**
+     * Only kept while invariants are checked: the planets where a landing while neutral left the players' populations
+     * not adding up to the total
+     */
+    private boolean[] miscounted;
+
+    private final int[] adjacencyStart;
+    private final int[] adjacency;
+    private final int[] adjacencyLength;
+    private VisibilityIndex player1Visibility;
+    private VisibilityIndex player2Visibility;
+
+    private final int[] indexById;
+    private Planet[] planets;
+    private Collection<Planet> planetView;
+
+    /**
+     * Starts a game from a map template. Columns that never change are shared with the template; the rest are copied.
+     */
+    PlanetState(MapTemplate template, IPlanetLookup planetLookup) {
+        this.count = template.count;
+        this.ids = template.ids;
+        this.habitability = template.habitability;
+        this.size = template.size;
+        this.totalPopulation = template.totalPopulation.clone();
+        this.p1Population = template.p1Population.clone();
+        this.p2Population = template.p2Population.clone();
+        this.owningPlayer = template.owningPlayer.clone();
+        this.homeworld = template.homeworld;
+        this.arrivingP1 = new long[count];
+        this.arrivingP2 = new long[count];
+        this.miscounted = InvariantChecker.ENABLED ? new boolean[count] : null;
+        this.shuttles = new ShuttleScheduler(this, count);
+        this.adjacencyStart = template.adjacencyStart;
+        this.adjacency = template.adjacency;
+        this.adjacencyLength = template.adjacencyLength;
+        this.indexById = template.indexById;
+
+        for (int i = 0; i < count; i++) {
+            this.ownedPlanets[owningPlayer[i]]++;
+            this.p1Total += p1Population[i];
+            this.p2Total += p2Population[i];
+        }
+
+        this.planets = new Planet[count];
+        for (int i = 0; i < count; i++) {
+            this.planets[i] = new Planet(this, i, template, planetLookup);
+            this.planets[i].setLocation(new Point2D(template.x[i], template.y[i]));
+        }
+
+        this.player1Visibility = new VisibilityIndex(InternalPlayer.PLAYER1, count, ids, adjacencyStart, adjacency);
+        this.player2Visibility = new VisibilityIndex(InternalPlayer.PLAYER2, count, ids, adjacencyStart, adjacency);
+        for (int i = 0; i < count; i++) {
+            if (owningPlayer[i] == PLAYER1) {
+                player1Visibility.gained(i);
+            } else if (owningPlayer[i] == PLAYER2) {
+                player2Visibility.gained(i);
+            }
+        }
+    }
+
+    /**
+     * Starts an empty store for {@link #read(DataInput)} to fill in.
+     */
+    private PlanetState(int[] ids, int[] adjacencyStart, int[] adjacency, int[] adjacencyLength) {
+        this.count = ids.length;
+        this.ids = ids;
+        this.arrivingP1 = new long[count];
+        this.arrivingP2 = new long[count];
+        this.miscounted = InvariantChecker.ENABLED ? new boolean[count] : null;
+        this.shuttles = new ShuttleScheduler(this, count);
+        this.adjacencyStart = adjacencyStart;
+        this.adjacency = adjacency;
+        this.adjacencyLength = adjacencyLength;
+        this.indexById = MapTemplate.buildIndex(ids);
+    }
+
+    /**
+     * Copies the simulated state of another store. The copy has no planet views or visibility indexes; it can only be
+     * simulated and queried by row.
+     */
+    private PlanetState(PlanetState other) {
+        this.count = other.count;
+        this.ids = other.ids;
+        this.habitability = other.habitability;
+        this.size = other.size;
+        this.totalPopulation = other.totalPopulation.clone();
+        this.p1Population = other.p1Population.clone();
+        this.p2Population = other.p2Population.clone();
+        this.owningPlayer = other.owningPlayer.clone();
+        this.homeworld = other.homeworld;
+        this.arrivingP1 = other.arrivingP1.clone();
+        this.arrivingP2 = other.arrivingP2.clone();
+        System.arraycopy(other.ownedPlanets, 0, this.ownedPlanets, 0, this.ownedPlanets.length);
+        this.p1Total = other.p1Total;
+        this.p2Total = other.p2Total;
+        this.masked = other.masked;
+        this.miscounted = other.miscounted == null ? null : other.miscounted.clone();
+        this.adjacencyStart = other.adjacencyStart;
+        this.adjacency = other.adjacency;
+        this.adjacencyLength = other.adjacencyLength;
+        this.indexById = other.indexById;
+        this.shuttles = new ShuttleScheduler(this, other.shuttles);
+    }
+
+    /**
+     * @return An independent copy of the simulated state
+     */
+    public PlanetState copy() {
+        return new PlanetState(this);
+    }
+
+    /**
+     * Copies the simulated state as the player can see it. Planets the player cannot see become empty neutral planets
+     * with no room for people, and the opponent's shuttles are dropped unless they are headed for a visible planet.
+     */
+    public PlanetState fork(InternalPlayer viewer) {
+        PlanetState fork = new PlanetState(this);
+        VisibilityIndex visibility = visibilityOf(viewer);
+        boolean masked = false;
+        for (int i = 0; i < count; i++) {
+            if (visibility.isVisible(i)) {
+                continue;
+            }
+            if (!masked) {
+                fork.size = fork.size.clone();
+                fork.habitability = fork.habitability.clone();
+                masked = true;
+            }
+            fork.size[i] = 0;
+            fork.habitability[i] = 0;
+            fork.totalPopulation[i] = 0;
+            fork.p1Population[i] = 0;
+            fork.p2Population[i] = 0;
+            fork.owningPlayer[i] = NEUTRAL;
+            if (fork.miscounted != null) {
+                fork.miscounted[i] = false;
+            }
+        }
+        fork.shuttles.retainVisible(viewer, visibility);
+        fork.masked = masked;
+
+        Arrays.fill(fork.ownedPlanets, 0);
+        fork.p1Total = 0;
+        fork.p2Total = 0;
+        for (int i = 0; i < count; i++) {
+            fork.ownedPlanets[fork.owningPlayer[i]]++;
+            fork.p1Total += fork.p1Population[i];
+            fork.p2Total += fork.p2Population[i];
+        }
+        return fork;
+    }
+
+    /**
+     * @return True if this is a fork which hides planets from its viewer, who can't know who owns them
+     */
+    public boolean isMasked() {
+        return masked;
+    }
+
+    /**
+     * Writes the simulated state, for {@link #read(DataInput)} to rebuild in a {@link StrategyHost}. Like a copy, the
+     * state read back has no planet views or visibility indexes.
+     */
+    void write(DataOutput out) throws IOException {
+        StrategyProtocol.writeVarLong(out, count);
+        for (int i = 0; i < count; i++) {
+            StrategyProtocol.writeVarLong(out, ids[i]);
+            StrategyProtocol.writeVarLong(out, habitability[i]);
+            StrategyProtocol.writeVarLong(out, size[i]);
+            StrategyProtocol.writeVarLong(out, totalPopulation[i]);
+            StrategyProtocol.writeVarLong(out, p1Population[i]);
+            StrategyProtocol.writeVarLong(out, p2Population[i]);
+            out.writeByte(owningPlayer[i]);
+            out.writeBoolean(homeworld[i]);
+            out.writeBoolean(miscounted != null && miscounted[i]);
+            StrategyProtocol.writeVarLong(out, adjacencyStart[i + 1] - adjacencyStart[i]);
+        }
+        for (int k = 0; k < adjacencyStart[count]; k++) {
+            StrategyProtocol.writeVarLong(out, adjacency[k]);
+            StrategyProtocol.writeVarLong(out, adjacencyLength[k]);
+        }
+        out.writeBoolean(masked);
+        // People only arrive part way through a tick, so there are never any to write
+        shuttles.write(out);
+    }
+
+    static PlanetState read(DataInput in) throws IOException {
+        int count = (int) StrategyProtocol.readVarLong(in);
+        int[] ids = new int[count];
+        int[] adjacencyStart = new int[count + 1];
+        int[] habitability = new int[count];
+        long[] size = new long[count];
+        long[] totalPopulation = new long[count];
+        long[] p1Population = new long[count];
+        long[] p2Population = new long[count];
+        byte[] owningPlayer = new byte[count];
+        boolean[] homeworld = new boolean[count];
+        boolean[] miscounted = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = (int) StrategyProtocol.readVarLong(in);
+            habitability[i] = (int) StrategyProtocol.readVarLong(in);
+            size[i] = StrategyProtocol.readVarLong(in);
+            totalPopulation[i] = StrategyProtocol.readVarLong(in);
+            p1Population[i] = StrategyProtocol.readVarLong(in);
+            p2Population[i] = StrategyProtocol.readVarLong(in);
+            owningPlayer[i] = in.readByte();
+            homeworld[i] = in.readBoolean();
+            miscounted[i] = in.readBoolean();
+            adjacencyStart[i + 1] = adjacencyStart[i] + (int) StrategyProtocol.readVarLong(in);
+        }
+        int[] adjacency = new int[adjacencyStart[count]];
+        int[] adjacencyLength = new int[adjacencyStart[count]];
+        for (int k = 0; k < adjacency.length; k++) {
+            adjacency[k] = (int) StrategyProtocol.readVarLong(in);
+            adjacencyLength[k] = (int) StrategyProtocol.readVarLong(in);
+        }
+
+        PlanetState state = new PlanetState(ids, adjacencyStart, adjacency, adjacencyLength);
+        state.habitability = habitability;
+        state.size = size;
+        state.totalPopulation = totalPopulation;
+        state.p1Population = p1Population;
+        state.p2Population = p2Population;
+        state.owningPlayer = owningPlayer;
+        state.homeworld = homeworld;
+        if (state.miscounted != null) {
+            state.miscounted = miscounted;
+        }
+        for (int i = 0; i < count; i++) {
+            state.ownedPlanets[owningPlayer[i]]++;
+            state.p1Total += p1Population[i];
+            state.p2Total += p2Population[i];
+        }
+        state.masked = in.readBoolean();
+        state.shuttles.read(in);
+        return state;
+    }
+
+    /**
+     * Only kept while invariants are checked.
+     *
+     * @return True if the last landing on the planet while it was neutral left the players' populations not adding up
+     *         to the total; growth and shrinkage then carry that on
+     */
+    boolean isMiscounted(int index) {
+        return miscounted[index];
+    }
+
+    public int getPlanetCount() {
+        return count;
+    }
+
+    /**
+     * @return The row index of the planet with the given id, or -1 if there is no such planet
+     */
+    public int indexOf(int id) {
+        return id >= 0 && id < indexById.length ? indexById[id] : -1;
+    }
+
+    public Planet getPlanet(int index) {
+        return planets[index];
+    }
+
+    public Planet lookupPlanet(int id) {
+        int index = indexOf(id);
+        return index < 0 ? null : planets[index];
+    }
+
+    public Collection<Planet> getPlanets() {
+        if (planetView == null) {
+            planetView = Collections.unmodifiableList(Arrays.asList(planets).subList(0, count));
+        }
+        return planetView;
+    }
+
+    /**
+     * @return The length of the edge between two planets, or -1 if they are not connected
+     */
+    public int getEdgeLength(int from, int to) {
+        for (int k = adjacencyStart[from]; k < adjacencyStart[from + 1]; k++) {
+            if (adjacency[k] == to) {
+                return adjacencyLength[k];
+            }
+        }
+        return -1;
+    }
+
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    public int getHabitability(int index) {
+        return habitability[index];
+    }
+
+    public long getSize(int index) {
+        return size[index];
+    }
+
+    public boolean isHomeworld(int index) {
+        return homeworld[index];
+    }
+
+    public long getTotalPopulation(int index) {
+        return totalPopulation[index];
+    }
+
+    public void setTotalPopulation(int index, long totalPopulation) {
+        this.totalPopulation[index] = totalPopulation;
+        markChanged(index);
+    }
+
+    public long getP1Population(int index) {
+        return p1Population[index];
+    }
+
+    public void setP1Population(int index, long p1Population) {
+        this.p1Total += p1Population - this.p1Population[index];
+        this.p1Population[index] = p1Population;
+        markChanged(index);
+    }
+
+    public long getP2Population(int index) {
+        return p2Population[index];
+    }
+
+    public void setP2Population(int index, long p2Population) {
+        this.p2Total += p2Population - this.p2Population[index];
+        this.p2Population[index] = p2Population;
+        markChanged(index);
+    }
+
+    public InternalPlayer getOwningPlayer(int index) {
+        return PLAYERS[owningPlayer[index]];
+    }
+
+    /**
+     * @return The number of planets currently owned by the player
+     */
+    public int getOwnedPlanets(InternalPlayer player) {
+        return ownedPlanets[player.ordinal()];
+    }
+
+    /**
+     * @return The number of people the player has across all planets, not counting people in flight
+     */
+    public long getPopulation(InternalPlayer player) {
+        switch (player) {
+            case PLAYER1:
+                return p1Total;
+            case PLAYER2:
+                return p2Total;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * @return The number of the player's shuttles which have launched but not yet landed
+     */
+    public int getShuttlesInFlight(InternalPlayer player) {
+        return shuttles.getShuttlesInFlight(player);
+    }
+
+    public ShuttleScheduler getShuttles() {
+        return shuttles;
+    }
+
+    /**
+     * @return The player's view of every planet: full snapshots of the planets they can see, and bare ones of the rest
+     */
+    public List<IPlanet> getPlanetsSnapshot(InternalPlayer viewer) {
+        VisibilityIndex visibility = visibilityOf(viewer);
+        // Shuttles in flight get closer every tick, so planets they are headed for change without being touched
+        shuttles.markIncoming(visibility);
+        return visibility.snapshot(this);
+    }
+
+    VisibilityIndex visibilityOf(InternalPlayer viewer) {
+        return viewer == InternalPlayer.PLAYER1 ? player1Visibility : player2Visibility;
+    }
+
+    /**
+     * Queues a planet's snapshots to be rebuilt for both players.
+     */
+    void markChanged(int index) {
+        if (player1Visibility != null) {
+            player1Visibility.markDirty(index);
+            player2Visibility.markDirty(index);
+        }
+    }
+
+    /**
+     * Records people arriving at a planet this tick; they land in {@link #landArrivals(int)}.
+     */
+    void arrive(int index, byte player, long numPeople) {
+        if (player == PLAYER1) {
+            arrivingP1[index] += numPeople;
+        } else {
+            arrivingP2[index] += numPeople;
+        }
+    }
+
+    /**
+     * Lands whatever has arrived at a planet this tick.
+     */
+    public void landArrivals(int index) {
+        long player1Pop = arrivingP1[index];
+        long player2Pop = arrivingP2[index];
+        if ((player1Pop | player2Pop) == 0) {
+            return;
+        }
+        arrivingP1[index] = 0;
+        arrivingP2[index] = 0;
+        land(index, player1Pop, player2Pop);
+    }
+
+    /**
+     * Plays out one tick on every planet: shuttles due on the tick land, and populations grow or shrink.
+     */
+    public void advance(int tick) {
+        shuttles.drain(tick);
+        for (int i = 0; i < count; i++) {
+            if (InvariantChecker.ENABLED) {
+                InvariantChecker.check(this, i, tick, "launches");
+            }
+            grow(i);
+            if (InvariantChecker.ENABLED) {
+                InvariantChecker.check(this, i, tick, "grow");
+                InvariantChecker.checkOwner(this, i, tick, "grow");
+            }
+            landArrivals(i);
+            if (InvariantChecker.ENABLED) {
+                InvariantChecker.check(this, i, tick, "landing");
+            }
+            shrink(i);
+            if (InvariantChecker.ENABLED) {
+                InvariantChecker.check(this, i, tick, "shrink");
+            }
+        }
+    }
+
+    /**
+     * Removes departing people from a planet and reassigns its owner.
+     *
+     * @return True if the player had enough people on the planet
+     */
+    public boolean depart(int index, InternalPlayer player, long numPeople) {
+        long p1 = p1Population[index];
+        long p2 = p2Population[index];
+        if (player == InternalPlayer.PLAYER1) {
+            if (p1 < numPeople) {
+                return false;
+            }
+            p1 -= numPeople;
+        } else {
+            if (p2 < numPeople) {
+                return false;
+            }
+            p2 -= numPeople;
+        }
+        long total = totalPopulation[index] - numPeople;
+
+        store(index, total, p1, p2, total == 0 ? NEUTRAL : majority(p1, p2));
+        return true;
+    }
+
+    public void grow(int index) {
+        long total = totalPopulation[index];
+        long capacity = size[index];
+        if (total > capacity) {
+            return;
+        }
+        long p1 = p1Population[index];
+        long p2 = p2Population[index];
+
+        double populationScaleFactor = 1. + (habitability[index] / 100.);
+        long popIncrease = (long) Math.min(capacity, Math.ceil(total * populationScaleFactor));
+        popIncrease -= total; // determines how much total population will increase
+
+        // split population increase proportionally between pop1 and pop2
+        long p1fraction = (long) Math.floor(popIncrease * (p1 / (double) total));
+        long p2fraction = (long) Math.floor(popIncrease * (p2 / (double) total));
+
+        total += popIncrease;
+        p1 += p1fraction;
+        p2 += p2fraction;
+
+        if (p1fraction + p2fraction < popIncrease && p1 >= p2) { // cause rounding
+            p1 += popIncrease - (p1fraction + p2fraction);
+        } else if (p1fraction + p2fraction < popIncrease && p1 < p2) {
+            p2 += popIncrease - (p1fraction + p2fraction);
+        }
+
+        store(index, total, p1, p2, majority(p1, p2));
+    }
+
+    /**
+     * Lands the people arriving at a planet this tick.
+     *
+     * @param player1Pop The number of player 1's people arriving
+     * @param player2Pop The number of player 2's people arriving
+     */
+    public void land(int index, long player1Pop, long player2Pop) {
+        long total = totalPopulation[index];
+        long capacity = size[index];
+        long p1 = p1Population[index];
+        long p2 = p2Population[index];
+        byte owner = owningPlayer[index];
+
+        if (owner == NEUTRAL) {
+            // If the planet is currently neutral, the person who is landing more troops gets it,
+            // with the totalPopulation being the difference in arriving people. Neither player gets a
+            // defending bonus.
+            // If the planet is at capacity and neutral, no one can land so all populations stay the same
+            if (total < capacity) {
+                total = Math.min(capacity, total + (player1Pop + player2Pop));
+                if (player1Pop > player2Pop) {
+                    p1 += player1Pop;
+                    p2 += Math.min(player2Pop, Math.max(0, capacity - player1Pop));
+                    owner = PLAYER1;
+                } else if (player1Pop < player2Pop) {
+                    p2 += player2Pop;
+                    p1 += Math.min(player1Pop, Math.max(0, capacity - player2Pop));
+                    owner = PLAYER2;
+                } else if (total == capacity) {
+                    p1 = capacity / 2;
+                    p2 = capacity / 2;
+                    total = p1 + p2;
+                } else {
+                    p1 += player1Pop;
+                    p2 += player2Pop;
+                }
+            }
+            if (InvariantChecker.ENABLED) {
+                // The total is capped when players' people are not, so the two can come apart here, and only here
+                miscounted[index] = p1 + p2 != total;
+            }
+        } else {
+            // Someone owns the planet; we'll land all friendly people first, and then all
+            // hostile people, who can only fill the room the owner leaves.
+            if (owner == PLAYER1) {
+                total += player1Pop;
+                p1 += player1Pop;
+                long landed = Math.min(Math.max(0, capacity - p1), player2Pop);
+                p2 += landed;
+                total += landed;
+            } else {
+                total += player2Pop;
+                p2 += player2Pop;
+                long landed = Math.min(Math.max(0, capacity - p2), player1Pop);
+                p1 += landed;
+                total += landed;
+            }
+        }
+
+        store(index, total, p1, p2, owner);
+        assert total >= 0;
+    }
+
+    public void shrink(int index) {
+        long total = totalPopulation[index];
+        long capacity = size[index];
+        if (total <= capacity) {
+            return;
+        }
+        long p1 = p1Population[index];
+        long p2 = p2Population[index];
+
+        long difference = total - capacity;
+        long killedOff = (long) Math.ceil(difference * 0.1);
+
+        if (owningPlayer[index] == PLAYER1) {
+            killedOff = Math.min(killedOff, p1);
+            p1 -= killedOff;
+        } else {
+            killedOff = Math.min(killedOff, p2);
+            p2 -= killedOff;
+        }
+        total -= killedOff;
+
+        store(index, total, p1, p2, majority(p1, p2));
+        assert total >= capacity;
+    }
+
+    /**
+     * Writes back a row, keeping the per-player aggregates and visibility indexes in step.
+     */
+    private void store(int index, long total, long p1, long p2, byte owner) {
+        byte oldOwner = owningPlayer[index];
+        if (total == totalPopulation[index] && p1 == p1Population[index] && p2 == p2Population[index] && owner == oldOwner) {
+            return;
+        }
+        markChanged(index);
+
+        p1Total += p1 - p1Population[index];
+        p2Total += p2 - p2Population[index];
+        if (oldOwner != owner) {
+            ownedPlanets[oldOwner]--;
+            ownedPlanets[owner]++;
+            owningPlayer[index] = owner;
+            if (player1Visibility != null) {
+                if (oldOwner == PLAYER1) {
+                    player1Visibility.lost(index);
+                } else if (oldOwner == PLAYER2) {
+                    player2Visibility.lost(index);
+                }
+                if (owner == PLAYER1) {
+                    player1Visibility.gained(index);
+                } else if (owner == PLAYER2) {
+                    player2Visibility.gained(index);
+                }
+            }
+        }
+        totalPopulation[index] = total;
+        p1Population[index] = p1;
+        p2Population[index] = p2;
+    }
+
+    private static byte majority(long p1, long p2) {
+        if (p1 > p2) {
+            return PLAYER1;
+        } else if (p1 < p2) {
+            return PLAYER2;
+        } else {
+            return NEUTRAL;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package spaceexplorers.core;
+
+import spaceexplorers.publicapi.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Stands in for a jar strategy played by a {@link StrategyHost}, so that the engine can treat it like any other.
+ * <p>
+ * A turn which is interrupted, because it ran out of time or the game was given up on, kills the host, and the next
+ * turn loads the strategy afresh in another; so does a host which dies. Either way the strategy loses whatever it kept
+ * between turns, though it is given its seed again. If it can't be loaded again, it would only fail the same way every
+ * turn, starting a JVM each time, so it makes no more moves that game.
+ * <p>
+ * What the strategy allocates is on the host's heap, not the engine's, so it isn't counted towards the engine's
+ * allocation budgets; the host's own heap limit stands in for them. The CPU time it uses is measured by the host, and
+ * handed back with its moves for seeded games to hold it to. A strategy which throws has what it threw passed
+ * on, after the moves it made before throwing, as if it had thrown in the engine. A forward model asked for in the host
+ * is forked by the engine, just as it would be for the strategy played in process, and sent over.
+ * <p>
+ * Close it once the game is over, to return the host to the pool.
+ */
+final class RemoteStrategy implements ISeededStrategy, AutoCloseable {
+    private final String jar;
+    private final String name;
+    private final boolean compete;
+    private StrategyWorker worker;
+    private Long seed; // Sent again to any host the strategy is loaded afresh in
+    private boolean stopped; // Set once the strategy couldn't be loaded again
+    private long lastTurnCpuTime;
+
+    private RemoteStrategy(String jar, StrategyWorker worker, String name, boolean compete) {
+        this.jar = jar;
+        this.worker = worker;
+        this.name = name;
+        this.compete = compete;
+    }
+
+    /**
+     * @return The strategy, loaded in a host; or null if it couldn't be loaded
+     */
+    static RemoteStrategy load(String jar) {
+        StrategyWorker worker = null;
+        try {
+            worker = StrategyWorker.acquire();
+            StrategyWorker.Reply loaded = worker.load(jar);
+            return new RemoteStrategy(jar, worker, loaded.text, loaded.flag);
+        } catch (IOException e) {
+            if (worker != null) {
+                worker.kill();
+            }
+            return null;
+        } catch (InterruptedException e) {
+            worker.kill();
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    @Override
+    public void takeTurn(List<IPlanet> planets, IPlanetOperations planetOperations, Queue<IEvent> eventsToExecute) {
+        lastTurnCpuTime = 0;
+        if (stopped) {
+            return;
+        }
+        StrategyWorker.Reply reply;
+        try {
+            if (worker == null && !reload()) {
+                return;
+            }
+            reply = worker.takeTurn(planets, planetOperations);
+        } catch (IOException e) {
+            // The host died; this turn is lost, and the next starts another
+            disconnect();
+            return;
+        } catch (InterruptedException e) {
+            disconnect();
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        lastTurnCpuTime = reply.cpuTime;
+        long[] moves = reply.moves;
+        Map<Integer, IPlanet> byId = new HashMap<>();
+        for (IPlanet planet : planets) {
+            byId.put(planet.getId(), planet);
+        }
+        for (int i = 0; i < moves.length; i += 3) {
+            IPlanet from = byId.get((int) moves[i]);
+            IPlanet to = byId.get((int) moves[i + 1]);
+            if (from != null && to != null) {
+                eventsToExecute.add(planetOperations.transferPeople(from, to, moves[i + 2]));
+            }
+        }
+        if (!reply.text.isEmpty()) {
+            throw new IllegalStateException(name + " threw in its strategy host: " + reply.text);
+        }
+    }
+
+    /**
+     * @return The CPU time the strategy used in its host during its last turn, or 0 if the turn didn't finish
+     */
+    long getLastTurnCpuTime() {
+        return lastTurnCpuTime;
+    }
+
+    /**
+     * Loads the strategy afresh in another host, and seeds it as before. If that fails, the strategy is stopped.
+     *
+     * @return False if it has been stopped
+     */
+    private boolean reload() throws InterruptedException {
+        try {
+            worker = StrategyWorker.acquire();
+            worker.load(jar);
+            if (seed != null) {
+                worker.seed(seed);
+            }
+            return true;
+        } catch (IOException e) {
+            disconnect();
+            stopped = true;
+            return false;
+        }
+    }
+
+    /**
+     * Passes the seed on to the strategy in the host, which takes it if it is seeded itself.
+     */
+    @Override
+    public void setSeed(long seed) {
+        this.seed = seed;
+        if (worker != null) {
+            try {
+                worker.seed(seed);
+            } catch (IOException e) {
+                // The host died; the next turn starts another, and seeds it
+                disconnect();
+            }
+        }
+    }
+
+    private void disconnect() {
+        if (worker != null) {
+            worker.kill();
+            worker = null;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean compete() {
+        return compete;
+    }
+
+    /**
+     * Returns the host to the pool.
+     */
+    @Override
+    public void close() {
+        if (worker != null) {
+            worker.release();
+            worker = null;
+        }
+    }
+}
@@ -8,7 +8,7 @@ final class Shuttle implements IEvent {
     private final int destId;
     private final InternalPlayer owningPlayer;
     private final long numPeople;
-    private int turnsToArrival;
+    private final int turnsToArrival;
 
     public Shuttle(int srcId, int destId, InternalPlayer owningPlayer, long numPeople, int turnsToArrival) {
         assert owningPlayer != InternalPlayer.NEUTRAL;
@@ -36,25 +36,22 @@ final class Shuttle implements IEvent {
         return destId;
     }
 
+    /**
+     * @return The number of turns the shuttle takes to arrive, counted from launch
+     */
     public int getTurnsToArrival() {
         return turnsToArrival;
     }
 
-    public void moveCloser() {
-        if (this.turnsToArrival > 0) {
-            this.turnsToArrival--;
-        }
-    }
-
-    public ShuttleSnapshot getShuttleSnapshot(InternalPlayer viewer) {
-        return new ShuttleSnapshot(this.srcId, this.destId, this.getOwnerFromViewer(viewer), this.numPeople, this.turnsToArrival);
+    public Owner getOwnerFromViewer(InternalPlayer viewer) {
+        return getOwnerFromViewer(this.owningPlayer, viewer);
     }
 
-    public Owner getOwnerFromViewer(InternalPlayer viewer) {
+    static Owner getOwnerFromViewer(InternalPlayer owningPlayer, InternalPlayer viewer) {
         assert viewer != InternalPlayer.NEUTRAL;
         assert viewer != null;
 
-        if (viewer == this.owningPlayer) {
+        if (viewer == owningPlayer) {
             return Owner.SELF;
         } else {
             return Owner.OPPONENT;
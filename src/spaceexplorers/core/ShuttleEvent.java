@@ -0,0 +1,39 @@
+package spaceexplorers.core;
+
+import jdk.jfr.*;
+
+/**
+ * A Flight Recorder event for a shuttle a strategy asked to launch, whether it was launched or rejected. Off by
+ * default, like {@link TickEvent}, and likewise only made once {@link #TYPE} says it is being recorded.
+ */
+@Name("spaceexplorers.Shuttle")
+@Label("Shuttle")
+@Category("Space Explorers")
+@Description("A shuttle a strategy asked to launch")
+@Enabled(false)
+@StackTrace(false)
+final class ShuttleEvent extends Event {
+    static final EventType TYPE = EventType.getEventType(ShuttleEvent.class);
+
+    @Label("Map")
+    String map;
+
+    @Label("Tick")
+    int tick;
+
+    @Label("Strategy")
+    String strategy;
+
+    @Label("Source Planet")
+    int sourcePlanet;
+
+    @Label("Destination Planet")
+    int destinationPlanet;
+
+    @Label("People")
+    long people;
+
+    @Label("Launched")
+    @Description("False if the shuttle was rejected as an invalid move")
+    boolean launched;
+}
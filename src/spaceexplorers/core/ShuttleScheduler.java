@@ -0,0 +1,356 @@
+package spaceexplorers.core;
+
+import spaceexplorers.publicapi.IShuttle;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps every shuttle in flight and lands them on the tick they arrive.
+ * <p>
+ * Shuttles are bucketed on a timing wheel by arrival tick, so each tick only touches the shuttles that land on it,
+ * however many are still in flight. The wheel always has more slots than the longest flight currently scheduled, which
+ * means every shuttle in the slot being drained arrives on exactly that tick.
+ * <p>
+ * Shuttle state is kept in primitive columns indexed by a slot number that is recycled once the shuttle lands. Each
+ * planet also keeps a doubly linked list of the shuttles headed for it, in launch order, for building snapshots, and
+ * the planets with at least one shuttle headed for them are kept in a compact list.
+ */
+final class ShuttleScheduler {
+    private static final int NONE = -1;
+    private static final InternalPlayer[] PLAYERS = InternalPlayer.values();
+    private static final int INITIAL_WHEEL_SIZE = 16;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final PlanetState state;
+
+    private int[] source;
+    private int[] destination;
+    private byte[] owningPlayer;
+    private long[] numPeople;
+    private int[] arrivalTick;
+    private int[] next; // Next shuttle in the same wheel slot, or in the free list
+    private int[] nextIncoming;
+    private int[] prevIncoming;
+    private int freeHead = NONE;
+    private int used;
+
+    private int[] wheel;
+    private int wheelMask;
+
+    private int[] incomingHead;
+    private int[] incomingTail;
+    private int[] targeted; // Planets with shuttles headed for them
+    private int[] targetedPosition; // Where each planet is in targeted, or NONE
+    private int targetedCount;
+
+    private final int[] inFlight = new int[PLAYERS.length];
+    private int currentTick;
+
+    public ShuttleScheduler(PlanetState state, int planetCapacity) {
+        this.state = state;
+
+        this.source = new int[INITIAL_CAPACITY];
+        this.destination = new int[INITIAL_CAPACITY];
+        this.owningPlayer = new byte[INITIAL_CAPACITY];
+        this.numPeople = new long[INITIAL_CAPACITY];
+        this.arrivalTick = new int[INITIAL_CAPACITY];
+        this.next = new int[INITIAL_CAPACITY];
+        this.nextIncoming = new int[INITIAL_CAPACITY];
+        this.prevIncoming = new int[INITIAL_CAPACITY];
+
+        this.wheel = new int[INITIAL_WHEEL_SIZE];
+        Arrays.fill(this.wheel, NONE);
+        this.wheelMask = INITIAL_WHEEL_SIZE - 1;
+
+        this.incomingHead = new int[planetCapacity];
+        this.incomingTail = new int[planetCapacity];
+        Arrays.fill(this.incomingHead, NONE);
+        Arrays.fill(this.incomingTail, NONE);
+        this.targeted = new int[planetCapacity];
+        this.targetedPosition = new int[planetCapacity];
+        Arrays.fill(this.targetedPosition, NONE);
+    }
+
+    /**
+     * Copies every shuttle in flight from another scheduler.
+     *
+     * @param state The store the copy lands shuttles on
+     */
+    ShuttleScheduler(PlanetState state, ShuttleScheduler other) {
+        this.state = state;
+
+        this.source = other.source.clone();
+        this.destination = other.destination.clone();
+        this.owningPlayer = other.owningPlayer.clone();
+        this.numPeople = other.numPeople.clone();
+        this.arrivalTick = other.arrivalTick.clone();
+        this.next = other.next.clone();
+        this.nextIncoming = other.nextIncoming.clone();
+        this.prevIncoming = other.prevIncoming.clone();
+        this.freeHead = other.freeHead;
+        this.used = other.used;
+
+        this.wheel = other.wheel.clone();
+        this.wheelMask = other.wheelMask;
+
+        this.incomingHead = other.incomingHead.clone();
+        this.incomingTail = other.incomingTail.clone();
+        this.targeted = other.targeted.clone();
+        this.targetedPosition = other.targetedPosition.clone();
+        this.targetedCount = other.targetedCount;
+
+        System.arraycopy(other.inFlight, 0, this.inFlight, 0, this.inFlight.length);
+        this.currentTick = other.currentTick;
+    }
+
+    /**
+     * Schedules a shuttle which has already left its source planet.
+     *
+     * @param shuttle The validated shuttle; its turns to arrival is the length of the edge it travels
+     * @param tick    The tick the shuttle launches on
+     */
+    public void launch(Shuttle shuttle, int tick) {
+        launch(state.indexOf(shuttle.getSourcePlanetId()), state.indexOf(shuttle.getDestinationPlanetId()),
+                shuttle.getOwningPlayer(), shuttle.getNumberPeople(), shuttle.getTurnsToArrival(), tick);
+    }
+
+    /**
+     * Schedules a shuttle which has already left its source planet.
+     *
+     * @param source   The row of the source planet
+     * @param dest     The row of the destination planet
+     * @param distance The length of the edge the shuttle travels
+     * @param tick     The tick the shuttle launches on
+     */
+    public void launch(int source, int dest, InternalPlayer player, long numPeople, int distance, int tick) {
+        int turns = Math.max(1, distance);
+        schedule(source, dest, (byte) player.ordinal(), numPeople, tick + turns, turns);
+    }
+
+    /**
+     * @param turns How many ticks from the one being drained the shuttle arrives
+     */
+    private void schedule(int source, int dest, byte player, long numPeople, int arrival, int turns) {
+        if (turns > wheelMask) {
+            growWheel(turns);
+        }
+
+        int s = allocate();
+        this.source[s] = source;
+        this.destination[s] = dest;
+        this.owningPlayer[s] = player;
+        this.numPeople[s] = numPeople;
+        this.arrivalTick[s] = arrival;
+
+        int slot = this.arrivalTick[s] & wheelMask;
+        this.next[s] = wheel[slot];
+        this.wheel[slot] = s;
+
+        this.nextIncoming[s] = NONE;
+        this.prevIncoming[s] = incomingTail[dest];
+        if (incomingTail[dest] == NONE) {
+            incomingHead[dest] = s;
+            targetedPosition[dest] = targetedCount;
+            targeted[targetedCount++] = dest;
+        } else {
+            nextIncoming[incomingTail[dest]] = s;
+        }
+        incomingTail[dest] = s;
+        state.markChanged(dest);
+
+        inFlight[owningPlayer[s]]++;
+    }
+
+    /**
+     * Writes every shuttle in flight, for {@link #read(DataInput)} to schedule again. Each planet's shuttles are written
+     * in the order they launched, so they are headed for it in the same order once read.
+     */
+    void write(DataOutput out) throws IOException {
+        StrategyProtocol.writeVarLong(out, currentTick);
+        int count = 0;
+        for (int flying : inFlight) {
+            count += flying;
+        }
+        StrategyProtocol.writeVarLong(out, count);
+        for (int t = 0; t < targetedCount; t++) {
+            for (int s = incomingHead[targeted[t]]; s != NONE; s = nextIncoming[s]) {
+                StrategyProtocol.writeVarLong(out, source[s]);
+                StrategyProtocol.writeVarLong(out, destination[s]);
+                out.writeByte(owningPlayer[s]);
+                StrategyProtocol.writeVarLong(out, numPeople[s]);
+                StrategyProtocol.writeVarLong(out, arrivalTick[s]);
+            }
+        }
+    }
+
+    /**
+     * Schedules the shuttles written by {@link #write(DataOutput)}, into a scheduler which has none in flight.
+     */
+    void read(DataInput in) throws IOException {
+        this.currentTick = (int) StrategyProtocol.readVarLong(in);
+        int count = (int) StrategyProtocol.readVarLong(in);
+        for (int i = 0; i < count; i++) {
+            int source = (int) StrategyProtocol.readVarLong(in);
+            int dest = (int) StrategyProtocol.readVarLong(in);
+            byte player = in.readByte();
+            long numPeople = StrategyProtocol.readVarLong(in);
+            int arrival = (int) StrategyProtocol.readVarLong(in);
+            schedule(source, dest, player, numPeople, arrival, arrival - currentTick);
+        }
+    }
+
+    /**
+     * Hands every shuttle arriving on the tick to its destination planet, ready for
+     * {@link PlanetState#landArrivals(int)}.
+     */
+    public void drain(int tick) {
+        this.currentTick = tick;
+        int slot = tick & wheelMask;
+        int s = wheel[slot];
+        wheel[slot] = NONE;
+        while (s != NONE) {
+            int following = next[s];
+            assert arrivalTick[s] == tick;
+
+            state.arrive(destination[s], owningPlayer[s], numPeople[s]);
+            state.markChanged(destination[s]);
+            unlinkIncoming(s);
+            inFlight[owningPlayer[s]]--;
+            release(s);
+
+            s = following;
+        }
+    }
+
+    /**
+     * @return The number of the player's shuttles which have launched but not yet landed
+     */
+    public int getShuttlesInFlight(InternalPlayer player) {
+        return inFlight[player.ordinal()];
+    }
+
+    /**
+     * Queues a rebuild of the viewer's snapshot of every visible planet with shuttles headed for it.
+     */
+    public void markIncoming(VisibilityIndex visibility) {
+        for (int t = 0; t < targetedCount; t++) {
+            if (visibility.isVisible(targeted[t])) {
+                visibility.markDirty(targeted[t]);
+            }
+        }
+    }
+
+    /**
+     * Drops the shuttles the viewer cannot know about: the opponent's shuttles headed for planets the viewer cannot see.
+     */
+    public void retainVisible(InternalPlayer viewer, VisibilityIndex visibility) {
+        byte self = (byte) viewer.ordinal();
+        for (int slot = 0; slot < wheel.length; slot++) {
+            int kept = NONE;
+            int s = wheel[slot];
+            while (s != NONE) {
+                int following = next[s];
+                if (owningPlayer[s] == self || visibility.isVisible(destination[s])) {
+                    next[s] = kept;
+                    kept = s;
+                } else {
+                    unlinkIncoming(s);
+                    inFlight[owningPlayer[s]]--;
+                    release(s);
+                }
+                s = following;
+            }
+            wheel[slot] = kept;
+        }
+    }
+
+    public List<IShuttle> getIncomingIShuttles(int planet, InternalPlayer viewer) {
+        List<IShuttle> incoming = new ArrayList<>();
+        for (int s = incomingHead[planet]; s != NONE; s = nextIncoming[s]) {
+            InternalPlayer owner = PLAYERS[owningPlayer[s]];
+            incoming.add(new ShuttleSnapshot(
+                    state.getId(source[s]),
+                    state.getId(destination[s]),
+                    Shuttle.getOwnerFromViewer(owner, viewer),
+                    numPeople[s],
+                    arrivalTick[s] - currentTick));
+        }
+        return incoming;
+    }
+
+    private void unlinkIncoming(int s) {
+        int dest = destination[s];
+        int prev = prevIncoming[s];
+        int following = nextIncoming[s];
+        if (prev == NONE) {
+            incomingHead[dest] = following;
+        } else {
+            nextIncoming[prev] = following;
+        }
+        if (following == NONE) {
+            incomingTail[dest] = prev;
+        } else {
+            prevIncoming[following] = prev;
+        }
+
+        if (incomingHead[dest] == NONE) {
+            int position = targetedPosition[dest];
+            int last = targeted[--targetedCount];
+            targeted[position] = last;
+            targetedPosition[last] = position;
+            targetedPosition[dest] = NONE;
+        }
+    }
+
+    private int allocate() {
+        if (freeHead != NONE) {
+            int s = freeHead;
+            freeHead = next[s];
+            return s;
+        }
+        if (used == source.length) {
+            int capacity = used * 2;
+            source = Arrays.copyOf(source, capacity);
+            destination = Arrays.copyOf(destination, capacity);
+            owningPlayer = Arrays.copyOf(owningPlayer, capacity);
+            numPeople = Arrays.copyOf(numPeople, capacity);
+            arrivalTick = Arrays.copyOf(arrivalTick, capacity);
+            next = Arrays.copyOf(next, capacity);
+            nextIncoming = Arrays.copyOf(nextIncoming, capacity);
+            prevIncoming = Arrays.copyOf(prevIncoming, capacity);
+        }
+        return used++;
+    }
+
+    private void release(int s) {
+        next[s] = freeHead;
+        freeHead = s;
+    }
+
+    /**
+     * Widens the wheel so that a flight of the given length fits, re-bucketing the shuttles already in flight.
+     */
+    private void growWheel(int turns) {
+        int size = Integer.highestOneBit(turns) << 1;
+        int[] grown = new int[size];
+        Arrays.fill(grown, NONE);
+        int mask = size - 1;
+        for (int head : wheel) {
+            int s = head;
+            while (s != NONE) {
+                int following = next[s];
+                int slot = arrivalTick[s] & mask;
+                next[s] = grown[slot];
+                grown[slot] = s;
+                s = following;
+            }
+        }
+        this.wheel = grown;
+        this.wheelMask = mask;
+    }
+}
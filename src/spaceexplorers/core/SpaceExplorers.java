@@ -7,13 +7,30 @@ import spaceexplorers.strategies.*;
 import java.io.FileNotFoundException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public final class SpaceExplorers implements IPlanetLookup {
     private static final int MOVE_TIMEOUT = 1;
     private static final TimeUnit TIME_UNIT = TimeUnit.SECONDS;
     public static final int MAX_TURNS = 100;
+    private static final long PONDER_BUDGET_MILLIS = 500;
+    private static final long PONDER_GRACE_MILLIS = 10; // How long pondering has to stop before its worker is retired
+    private static final int SEEDED_CLOCK_MULTIPLE = 10; // How many turn limits a seeded game's turn gets on the clock
+    public static final long SUGGESTED_TURN_ALLOCATION_BUDGET = 64L << 20;
+    public static final long SUGGESTED_GAME_ALLOCATION_BUDGET = 1L << 30;
 
-    private Map<Integer, Planet> planetMap = new HashMap<>();
+    /**
+     * Carries headless games on after a strategy overruns its turn, leaving the stuck thread behind.
+     */
+    private static final ExecutorService CARRIERS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "game-carrier");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private PlanetState state;
+    private final String graph;
     private IStrategy player1;
     private IStrategy player2;
     private SpaceExplorersFrame observer;
@@ -24,8 +41,31 @@ public final class SpaceExplorers implements IPlanetLookup {
     private int turns;
 
     private boolean async;
-    private ExecutorService moveExecutor; // Handles timeouts
+    private boolean simultaneous;
+    private TurnExecutor player1Executor; // Handles timeouts
+    private TurnExecutor player2Executor;
+    private HeadlessRun headlessRun; // The run in progress when playing headless through runToCompletion
+    private int player1Timeouts;
+    private int player2Timeouts;
+    private Ponder player1Ponder; // Pondering in progress during the opponent's turn, if any
+    private Ponder player2Ponder;
+    private boolean player1PonderBanned; // Set once a strategy's pondering won't stop when told to
+    private boolean player2PonderBanned;
+    private final AtomicLong player1PonderTime = new AtomicLong();
+    private final AtomicLong player2PonderTime = new AtomicLong();
+    private final TurnStats player1TurnStats = new TurnStats();
+    private final TurnStats player2TurnStats = new TurnStats();
+    private long turnAllocationBudget = Long.MAX_VALUE; // No limits unless asked for
+    private long gameAllocationBudget = Long.MAX_VALUE;
+    private long player1Allocated; // Over the whole game, by the strategy's turns
+    private long player2Allocated;
+    private int player1MemoryForfeits; // Turns forfeited for allocating too much
+    private int player2MemoryForfeits;
+    private InternalPlayer forfeited; // The player who forfeited the game, if one has
     private InternalPlayer winner;
+    private boolean seeded;
+    private long player1Seed; // Drawn from the game's seed, if it has one
+    private long player2Seed;
 
     public SpaceExplorers(IStrategy player1, IStrategy player2, String graph) throws FileNotFoundException {
         this(player1, player2, graph, true);
@@ -38,109 +78,442 @@ public final class SpaceExplorers implements IPlanetLookup {
         this.player2Operations = new PlanetOperations(this, InternalPlayer.PLAYER2);
         this.player1Turn = true;
         this.gameOver = false;
+        this.graph = graph;
 
         this.async = async;
         if (async) {
-            this.moveExecutor = Executors.newSingleThreadExecutor();
+            startExecutors();
         }
         this.loadGraph(graph);
     }
 
     private void loadGraph(String graph) throws FileNotFoundException {
-        this.planetMap = SystemLoader.load(graph, this);
+        this.state = SystemLoader.load(graph, this);
     }
 
     void gameTick() {
-        if(turns > MAX_TURNS){
+        tick();
+    }
+
+    /**
+     * @return False if the strategy overran its turn, and the headless run carried on without this thread
+     */
+    private boolean tick() {
+        if(turns > MAX_TURNS && !this.gameOver){
             winner = majorityPopulation();
             this.gameOver = true;
+            shutdown();
         }
         if (this.gameOver) {
-            return;
+            return true;
         }
         turns++;
+        // Only make the event, and read the clock between phases, if Flight Recorder is recording ticks
+        boolean timed = TickEvent.TYPE.isEnabled();
+        TickEvent event = timed ? new TickEvent() : null;
+        if (timed) {
+            event.start(graph, turns);
+        }
         // Time passes on each planet
-        for (Planet planet : this.planetMap.values()) {
-            if(planet.getP1Population() < 0 || planet.getP2Population() < 0){
-                System.out.println(turns + ": Before Turn Planet: " + planet.getId() + ", P1: " + planet.getP1Population() + " P2: " + planet.getP2Population());
-            }
-            planet.grow();
-            if(planet.getP1Population() < 0 || planet.getP2Population() < 0){
-                System.out.println(turns + "After grow Planet: " + planet.getId() + ", P1: " + planet.getP1Population() + " P2: " + planet.getP2Population());
-            }
-            planet.processShuttles();
-            if(planet.getP1Population() < 0 || planet.getP2Population() < 0){
-                System.out.println(turns + "After shuttles Planet: " + planet.getId() + ", P1: " + planet.getP1Population() + " P2: " + planet.getP2Population());
-            }
-            planet.shrink();
-            if(planet.getP1Population() < 0 || planet.getP2Population() < 0){
-                System.out.println(turns + "After shrink Planet: " + planet.getId()+ ", P1: " + planet.getP1Population() + " P2: " + planet.getP2Population());
-            }
+        if (timed) {
+            advanceTimed(this.state, event);
+        } else {
+            this.state.advance(turns);
         }
         // Check for win conditions
-        if (hasWon(InternalPlayer.PLAYER1) || hasWon(InternalPlayer.PLAYER2)) {
+        boolean won = hasWon(InternalPlayer.PLAYER1) || hasWon(InternalPlayer.PLAYER2);
+        if (timed) {
+            event.winCheck = event.lap();
+        }
+        if (won) {
             this.gameOver = true;
-            return;
+            if (timed) {
+                event.commit();
+            }
+            return true;
         }
-        IStrategy player;
-        InternalPlayer playerToken;
-        IPlanetOperations operations;
-        if (this.player1Turn) {
-            player = this.player1;
-            playerToken = InternalPlayer.PLAYER1;
-            operations = this.player1Operations;
-        } else {
-            player = this.player2;
-            playerToken = InternalPlayer.PLAYER2;
-            operations = this.player2Operations;
+        if (simultaneous) {
+            simultaneousTurns(event);
+            if (timed) {
+                event.commit();
+            }
+            return true;
         }
-        Queue<IEvent> eventsToProcess = new ArrayDeque<>();
-        List<IPlanet> snapshot = getPlanetsSnapshot(playerToken);
+        // The player stops thinking ahead now it's their turn, and the opponent starts
+        stopPondering(this.player1Turn);
+        startPondering(!this.player1Turn);
+        Turn turn = new Turn(this.player1Turn);
+        if (timed) {
+            event.player = turn.player.getName();
+            event.snapshot = event.lap();
+        }
+        Queue<IEvent> eventsToProcess;
         if (async) {
             // Let the player make their moves
-            Future<?> turn = moveExecutor.submit(new Runnable() {
-                @Override
-                public void run() {
-                    player.takeTurn(snapshot, operations, eventsToProcess);
-                }
-            });
-            try {
-                turn.get(MOVE_TIMEOUT, TIME_UNIT);
-            } catch (InterruptedException | TimeoutException e) {
-                // Turn skips, multiple catches in case we want to do something else
-                // due to timeouts
-            } catch (ExecutionException e) {
-                // welp, ok then
+            TurnExecutor executor = turn.player1 ? this.player1Executor : this.player2Executor;
+            eventsToProcess = turn.end(executor.run(turn, turn.deadline, turn.meter, turn.allocationLimit));
+            if (timed) {
+                event.strategy = event.lap();
             }
         } else {
+            // Play inline, with the watchdog keeping time
+            HeadlessRun run = this.headlessRun;
+            TurnWatchdog.Watch watch = TurnWatchdog.watch(turn.deadline, turn.meter, turn.allocationLimit, run == null ? () -> { } : () -> {
+                CARRIERS.execute(() -> {
+                    endTurn(turn.end(false));
+                    play(run);
+                });
+            });
+            boolean finished;
             try {
-                player.takeTurn(snapshot, operations, eventsToProcess);
+                turn.run();
             } catch (Exception e) {
                 // welp, ok then
+            } finally {
+                // Even when the strategy throws an error, so that either this thread or a carrier carries on, never both
+                finished = watch.finish();
+            }
+            if (timed) {
+                event.strategy = event.lap();
+            }
+            if (!finished && run != null) {
+                // A carrier has taken over the game; anything this thread touches now would race with it
+                if (timed) {
+                    event.commit();
+                }
+                return false;
             }
+            // Without a run, nothing else can carry the game on, so it waited for the strategy; the turn still overran
+            eventsToProcess = turn.end(finished);
         }
-        // Process the player's moves
+        endTurn(eventsToProcess);
+        if (timed) {
+            event.events = event.lap();
+            event.commit();
+        }
+        return true;
+    }
+
+    /**
+     * Plays out the planets' part of a tick one phase at a time over every planet, timing each phase.
+     */
+    private void advanceTimed(PlanetState state, TickEvent event) {
+        int n = state.getPlanetCount();
+        state.getShuttles().drain(turns);
+        // Shuttles due this tick have been taken off the schedule, ready to land
+        event.processShuttles = event.lap();
+        for (int i = 0; i < n; i++) {
+            if (InvariantChecker.ENABLED) {
+                InvariantChecker.check(state, i, turns, "launches");
+            }
+            state.grow(i);
+            if (InvariantChecker.ENABLED) {
+                InvariantChecker.check(state, i, turns, "grow");
+                InvariantChecker.checkOwner(state, i, turns, "grow");
+            }
+        }
+        event.grow = event.lap();
+        for (int i = 0; i < n; i++) {
+            state.landArrivals(i);
+            if (InvariantChecker.ENABLED) {
+                InvariantChecker.check(state, i, turns, "landing");
+            }
+        }
+        event.processShuttles += event.lap();
+        for (int i = 0; i < n; i++) {
+            state.shrink(i);
+            if (InvariantChecker.ENABLED) {
+                InvariantChecker.check(state, i, turns, "shrink");
+            }
+        }
+        event.shrink = event.lap();
+    }
+
+    /**
+     * Both players move at once, each seeing the system as it was before either moved. Their moves are then processed
+     * one player's after the other's, with who goes first alternating each tick, just as it does when taking turns.
+     *
+     * @param event The tick's event, if it is being recorded
+     */
+    private void simultaneousTurns(TickEvent event) {
+        Turn first = new Turn(this.player1Turn);
+        Turn second = new Turn(!this.player1Turn);
+        if (event != null) {
+            event.player = first.player.getName() + " & " + second.player.getName();
+            event.snapshot = event.lap();
+        }
+        TurnExecutor firstExecutor = first.player1 ? this.player1Executor : this.player2Executor;
+        TurnExecutor secondExecutor = second.player1 ? this.player1Executor : this.player2Executor;
+        Future<?> firstTurn = firstExecutor.start(first);
+        Future<?> secondTurn = secondExecutor.start(second);
+        boolean firstFinished = firstExecutor.await(firstTurn, first.deadline, first.meter, first.allocationLimit);
+        boolean secondFinished = secondExecutor.await(secondTurn, second.deadline, second.meter, second.allocationLimit);
+        Queue<IEvent> firstEvents = first.end(firstFinished);
+        Queue<IEvent> secondEvents = second.end(secondFinished);
+        if (event != null) {
+            event.strategy = event.lap();
+        }
+        launchAll(firstEvents);
+        launchAll(secondEvents);
+        this.player1Turn = !this.player1Turn;
+        if (event != null) {
+            event.events = event.lap();
+        }
+    }
+
+    /**
+     * Processes the player's moves, and passes play to the other player.
+     */
+    private void endTurn(Queue<IEvent> eventsToProcess) {
+        launchAll(eventsToProcess);
+        this.player1Turn = !this.player1Turn;
+    }
+
+    private void launchAll(Queue<IEvent> eventsToProcess) {
+        boolean recorded = ShuttleEvent.TYPE.isEnabled();
         for (IEvent event : eventsToProcess) {
             if (event instanceof Shuttle) {
                 Shuttle shuttle = (Shuttle) event;
-                if (this.lookupPlanet(shuttle.getSourcePlanetId()).checkAndLaunchShuttle(shuttle)) {
-                    this.lookupPlanet(shuttle.getDestinationPlanetId()).addIncomingShuttle(shuttle);
+                boolean launched = this.lookupPlanet(shuttle.getSourcePlanetId()).checkAndLaunchShuttle(shuttle);
+                if (launched) {
+                    this.state.getShuttles().launch(shuttle, turns);
                     if (this.observer != null) {
                         this.observer.notifyNewShuttle(shuttle);
                     }
                 }
+                if (recorded) {
+                    ShuttleEvent shuttleEvent = new ShuttleEvent();
+                    shuttleEvent.map = graph;
+                    shuttleEvent.tick = turns;
+                    shuttleEvent.strategy = (shuttle.getOwningPlayer() == InternalPlayer.PLAYER1 ? player1 : player2).getName();
+                    shuttleEvent.sourcePlanet = shuttle.getSourcePlanetId();
+                    shuttleEvent.destinationPlanet = shuttle.getDestinationPlanetId();
+                    shuttleEvent.people = shuttle.getNumberPeople();
+                    shuttleEvent.launched = launched;
+                    shuttleEvent.commit();
+                }
             }
         }
-        this.player1Turn = !this.player1Turn;
     }
 
-    InternalPlayer majorityPopulation(){
-        long p1 = 0;
-        long p2 = 0;
-        for(Planet p : this.planetMap.values()){
-            p1+=p.getP1Population();
-            p2+=p.getP2Population();
+    /**
+     * Lets a pondering strategy think ahead on its own worker, while the other player takes their turn.
+     */
+    private void startPondering(boolean player1) {
+        IStrategy player = player1 ? this.player1 : this.player2;
+        if (!(player instanceof IPonderingStrategy) || (player1 ? this.player1PonderBanned : this.player2PonderBanned) || this.seeded) {
+            return;
+        }
+        startExecutors();
+        InternalPlayer playerToken = player1 ? InternalPlayer.PLAYER1 : InternalPlayer.PLAYER2;
+        Ponder ponder = new Ponder((IPonderingStrategy) player, getPlanetsSnapshot(playerToken), getForwardModel(playerToken),
+                player1 ? this.player1PonderTime : this.player2PonderTime);
+        ponder.future = (player1 ? this.player1Executor : this.player2Executor).start(ponder);
+        if (player1) {
+            this.player1Ponder = ponder;
+        } else {
+            this.player2Ponder = ponder;
+        }
+    }
+
+    private void stopPondering(boolean player1) {
+        Ponder ponder = player1 ? this.player1Ponder : this.player2Ponder;
+        if (ponder == null) {
+            return;
+        }
+        if (player1) {
+            this.player1Ponder = null;
+        } else {
+            this.player2Ponder = null;
+        }
+        if (!(player1 ? this.player1Executor : this.player2Executor).cancel(ponder.future, PONDER_GRACE_MILLIS, TimeUnit.MILLISECONDS)) {
+            // It ignored being interrupted, and is still running on a retired worker; it isn't given another chance
+            ponder.account();
+            if (player1) {
+                this.player1PonderBanned = true;
+            } else {
+                this.player2PonderBanned = true;
+            }
+        }
+    }
+
+    /**
+     * A strategy thinking ahead, whose CPU time is added to its total once, when it stops or is given up on.
+     */
+    private static final class Ponder implements Runnable {
+        private final IPonderingStrategy player;
+        private final List<IPlanet> snapshot;
+        private final IForwardModel model;
+        private final AtomicLong ponderTime;
+        private final ThreadMeter meter = new ThreadMeter();
+        private final AtomicBoolean accounted = new AtomicBoolean();
+        Future<?> future;
+
+        Ponder(IPonderingStrategy player, List<IPlanet> snapshot, IForwardModel model, AtomicLong ponderTime) {
+            this.player = player;
+            this.snapshot = snapshot;
+            this.model = model;
+            this.ponderTime = ponderTime;
+        }
+
+        @Override
+        public void run() {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PONDER_BUDGET_MILLIS);
+            TurnWatchdog.Watch watch = TurnWatchdog.watch(deadline, () -> { });
+            meter.start();
+            try {
+                player.ponder(snapshot, model);
+            } catch (Exception e) {
+                // Only the ponderer loses out
+            } finally {
+                account();
+                watch.finish();
+            }
+        }
+
+        /**
+         * Adds the CPU time used so far to the strategy's total; only the first call counts.
+         */
+        void account() {
+            meter.stop();
+            if (accounted.compareAndSet(false, true)) {
+                ponderTime.addAndGet(meter.getCpuTime());
+            }
+        }
+    }
+
+    /**
+     * The player loses the game, for breaking its rules.
+     */
+    private void forfeit(boolean player1) {
+        if (this.gameOver) {
+            return;
+        }
+        this.forfeited = player1 ? InternalPlayer.PLAYER1 : InternalPlayer.PLAYER2;
+        this.winner = player1 ? InternalPlayer.PLAYER2 : InternalPlayer.PLAYER1;
+        this.gameOver = true;
+        shutdown();
+    }
+
+    private void countTimeout(boolean player1) {
+        if (player1) {
+            player1Timeouts++;
+        } else {
+            player2Timeouts++;
+        }
+    }
+
+    /**
+     * One player's turn: what they can see, and the moves they make.
+     */
+    private final class Turn implements Runnable {
+        final boolean player1;
+        final long deadline;
+        private final IStrategy player;
+        private final IPlanetOperations operations;
+        private final List<IPlanet> snapshot;
+        private final Queue<IEvent> queued = new ArrayDeque<>();
+        private final AnytimeTurn anytimeTurn; // Anytime strategies publish moves as they go, which stand even if they overrun
+        private final ThreadMeter meter = new ThreadMeter();
+        private final long allocationLimit; // Whichever of the turn's and the game's allocation budgets runs out first
+
+        Turn(boolean player1) {
+            this.player1 = player1;
+            this.player = player1 ? SpaceExplorers.this.player1 : SpaceExplorers.this.player2;
+            this.operations = player1 ? player1Operations : player2Operations;
+            this.snapshot = getPlanetsSnapshot(player1 ? InternalPlayer.PLAYER1 : InternalPlayer.PLAYER2);
+            boolean anytime = player instanceof IAnytimeStrategy;
+            // Seeded games go by CPU time instead, with the clock only there to catch a strategy stuck waiting
+            long clockLimit = seeded && !anytime ? SEEDED_CLOCK_MULTIPLE * TIME_UNIT.toNanos(MOVE_TIMEOUT) : TIME_UNIT.toNanos(MOVE_TIMEOUT);
+            this.deadline = System.nanoTime() + clockLimit;
+            this.anytimeTurn = anytime ? new AnytimeTurn(deadline) : null;
+            // Unlimited stays unlimited, so that the turn isn't polled for what it allocates
+            long gameRemaining = gameAllocationBudget == Long.MAX_VALUE ? Long.MAX_VALUE
+                    : gameAllocationBudget - (player1 ? player1Allocated : player2Allocated);
+            this.allocationLimit = seeded ? Long.MAX_VALUE : Math.min(turnAllocationBudget, gameRemaining);
+        }
+
+        @Override
+        public void run() {
+            meter.start();
+            try {
+                if (anytimeTurn != null) {
+                    ((IAnytimeStrategy) player).takeTurn(snapshot, operations, anytimeTurn);
+                } else {
+                    player.takeTurn(snapshot, operations, queued);
+                }
+            } finally {
+                meter.stop();
+            }
+        }
+
+        /**
+         * Ends the turn, recording what it cost. A turn which allocated more than its budget is forfeited, as is the
+         * game if the strategy has gone over its budget for the whole game.
+         *
+         * @param inTime False if the turn overran, in which case the strategy may still be adding to its queue, so it is
+         *               left be and the turn skipped; unless the strategy is an anytime one, which keeps what it published.
+         *               In a seeded game, a turn which used more CPU time than the limit has overrun too
+         * @return The moves to process now the turn is over
+         */
+        Queue<IEvent> end(boolean inTime) {
+            meter.stop();
+            if (seeded && anytimeTurn == null && getCpuTime() > TIME_UNIT.toNanos(MOVE_TIMEOUT)) {
+                inTime = false;
+            }
+            (player1 ? player1TurnStats : player2TurnStats).record(meter);
+            long allocated = meter.getAllocatedBytes();
+            long gameAllocated;
+            if (player1) {
+                gameAllocated = player1Allocated += allocated;
+            } else {
+                gameAllocated = player2Allocated += allocated;
+            }
+            // Seeded games don't hold strategies to allocation budgets, as what they allocate depends on the JIT
+            if (!seeded && gameAllocated > gameAllocationBudget) {
+                forfeit(player1);
+                return new ArrayDeque<>();
+            }
+            if (!seeded && allocated > turnAllocationBudget) {
+                // Whether it was cut off for it or not, and even if it also overran, the turn's moves don't count
+                if (player1) {
+                    player1MemoryForfeits++;
+                } else {
+                    player2MemoryForfeits++;
+                }
+                return new ArrayDeque<>();
+            }
+            if (!inTime) {
+                countTimeout(player1);
+                TurnTimeoutEvent timeout = new TurnTimeoutEvent();
+                if (timeout.isEnabled()) {
+                    timeout.map = graph;
+                    timeout.tick = turns;
+                    timeout.strategy = player.getName();
+                    timeout.turnTime = meter.getWallTime();
+                    timeout.commit();
+                }
+            }
+            if (anytimeTurn != null) {
+                return anytimeTurn.end();
+            }
+            return inTime ? queued : new ArrayDeque<>();
         }
+
+        /**
+         * @return The CPU time the strategy used, wherever it ran
+         */
+        private long getCpuTime() {
+            if (player instanceof RemoteStrategy) {
+                return meter.getCpuTime() + ((RemoteStrategy) player).getLastTurnCpuTime();
+            }
+            return meter.getCpuTime();
+        }
+    }
+
+    InternalPlayer majorityPopulation(){
+        long p1 = state.getPopulation(InternalPlayer.PLAYER1);
+        long p2 = state.getPopulation(InternalPlayer.PLAYER2);
         if(p1 > p2){
             return InternalPlayer.PLAYER1;
         } else if (p1 < p2){
@@ -151,25 +524,163 @@ public final class SpaceExplorers implements IPlanetLookup {
     }
 
     boolean hasWon(InternalPlayer player) {
-        for (Planet planet : this.planetMap.values()) {
-            // If the other player owns a planet, the game is still going
-            if (planet.getOwnerFromViewer(player) == Owner.OPPONENT) {
-                return false;
-            }
-            // It isn't over until the last shuttle says it's over
-            for (IShuttle shuttle : planet.getIncomingIShuttles(player)) {
-                if (shuttle.getOwner() == Owner.OPPONENT) {
-                    return false;
-                }
-            }
+        InternalPlayer opponent = player == InternalPlayer.PLAYER1 ? InternalPlayer.PLAYER2 : InternalPlayer.PLAYER1;
+        // Whoever didn't forfeit has won, however the board looks
+        if (forfeited != null) {
+            return forfeited == opponent;
         }
-        if (async) {
-            this.moveExecutor.shutdownNow();
+        // If the other player owns a planet, the game is still going
+        if (state.getOwnedPlanets(opponent) > 0) {
+            return false;
         }
+        // It isn't over until the last shuttle says it's over
+        if (state.getShuttlesInFlight(opponent) > 0) {
+            return false;
+        }
+        shutdown();
         winner = player;
         return true;
     }
 
+    private void shutdown() {
+        if (this.player1Executor != null) {
+            this.player1Executor.shutdown();
+            this.player2Executor.shutdown();
+        }
+    }
+
+    /**
+     * @return The CPU time the strategy has spent pondering during the opponent's turns, in nanoseconds
+     */
+    public long getPonderTime(IStrategy player) {
+        if (player == this.player1) {
+            return player1PonderTime.get();
+        } else if (player == this.player2) {
+            return player2PonderTime.get();
+        } else {
+            throw new IllegalArgumentException("Not playing in this game");
+        }
+    }
+
+    /**
+     * @return What the strategy's turns have cost so far
+     */
+    public TurnStats getTurnStats(IStrategy player) {
+        if (player == this.player1) {
+            return player1TurnStats;
+        } else if (player == this.player2) {
+            return player2TurnStats;
+        } else {
+            throw new IllegalArgumentException("Not playing in this game");
+        }
+    }
+
+    /**
+     * Limits how much memory each strategy may allocate while taking its turns. A strategy which allocates more than
+     * the turn budget in a turn forfeits that turn, and one which allocates more than the game budget over the whole
+     * game forfeits the game. Either can be Long.MAX_VALUE for no limit, which is the default for both; the suggested
+     * budgets are {@link #SUGGESTED_TURN_ALLOCATION_BUDGET} and {@link #SUGGESTED_GAME_ALLOCATION_BUDGET}. Turns with a
+     * limit are checked on every few milliseconds, so an unlimited game runs a little faster. Should be set before the
+     * game starts.
+     */
+    public void setAllocationBudget(long perTurn, long perGame) {
+        this.turnAllocationBudget = perTurn;
+        this.gameAllocationBudget = perGame;
+    }
+
+    /**
+     * @return The number of turns the strategy has forfeited for allocating more than its budget
+     */
+    public int getMemoryForfeits(IStrategy player) {
+        if (player == this.player1) {
+            return player1MemoryForfeits;
+        } else if (player == this.player2) {
+            return player2MemoryForfeits;
+        } else {
+            throw new IllegalArgumentException("Not playing in this game");
+        }
+    }
+
+    /**
+     * @return True if the strategy has forfeited the game for allocating more than its budget
+     */
+    public boolean hasForfeited(IStrategy player) {
+        if (player == this.player1) {
+            return forfeited == InternalPlayer.PLAYER1;
+        } else if (player == this.player2) {
+            return forfeited == InternalPlayer.PLAYER2;
+        } else {
+            throw new IllegalArgumentException("Not playing in this game");
+        }
+    }
+
+    /**
+     * @return The number of turns the strategy has had skipped for running past the time limit
+     */
+    public int getTimeouts(IStrategy player) {
+        if (player == this.player1) {
+            return player1Timeouts;
+        } else if (player == this.player2) {
+            return player2Timeouts;
+        } else {
+            throw new IllegalArgumentException("Not playing in this game");
+        }
+    }
+
+    /**
+     * Switches between the usual rules, where players take turns to move, and simultaneous moves, where both players
+     * move every tick. Both players' strategies then run at once, on their own threads even when not async.
+     * Should be set before the game starts.
+     */
+    public void setSimultaneousMoves(boolean simultaneous) {
+        this.simultaneous = simultaneous;
+        if (simultaneous) {
+            startExecutors();
+        }
+    }
+
+    /**
+     * Makes the game play out the same way every time it is played with this seed, on the same map with the same
+     * strategies, however busy the machine is. Strategies which are {@link ISeededStrategy seeded} are handed seeds
+     * drawn from this one. A turn's time limit is on the CPU time the strategy uses, rather than the time on the clock,
+     * so that being kept waiting for a processor doesn't cost a strategy its turn; the clock only cuts a turn off at ten
+     * times the limit. Strategies played in worker processes have their CPU time measured there. Pondering is turned
+     * off, as how far a strategy gets depends on how long its opponent takes, and so are allocation budgets, as what a
+     * strategy allocates depends on what the JIT makes of it.
+     * <p>
+     * A strategy still plays the same only if it stays well clear of the time limit, and doesn't go by the clock
+     * itself. Anytime strategies do, so they keep the usual time limit. Should be set before the game starts.
+     *
+     * @throws IllegalStateException If this JVM can't measure threads' CPU time
+     */
+    public void setSeed(long seed) {
+        if (!ThreadMeter.measuresCpuTime()) {
+            throw new IllegalStateException("Seeded games need threads' CPU time, which this JVM doesn't measure");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        this.seeded = true;
+        this.player1Seed = random.nextLong();
+        this.player2Seed = random.nextLong();
+        seedPlayer(this.player1, this.player1Seed);
+        seedPlayer(this.player2, this.player2Seed);
+    }
+
+    private void seedPlayer(IStrategy player, long seed) {
+        if (this.seeded && player instanceof ISeededStrategy) {
+            ((ISeededStrategy) player).setSeed(seed);
+        }
+    }
+
+    /**
+     * Starts workers for the players' strategies, if they don't have them already.
+     */
+    private void startExecutors() {
+        if (this.player1Executor == null) {
+            this.player1Executor = new TurnExecutor("player1");
+            this.player2Executor = new TurnExecutor("player2");
+        }
+    }
+
     boolean isOver() {
         return gameOver;
     }
@@ -180,64 +691,56 @@ public final class SpaceExplorers implements IPlanetLookup {
 
     @Override
     public Planet lookupPlanet(int id) {
-        return planetMap.getOrDefault(id, null);
+        return state.lookupPlanet(id);
     }
 
     @Override
     public Collection<Planet> getPlanets() {
-        return this.planetMap.values();
+        return this.state.getPlanets();
     }
 
     public int getTurns(){
         return turns;
     }
 
-    List<IPlanet> getPlanetsSnapshot(InternalPlayer viewer) {
-        // Record which planets are visible
-        HashMap<Integer, Planet> visiblePlanets = new HashMap<>();
-        for (Planet planet : this.planetMap.values()) {
-            Owner owner = planet.getOwnerFromViewer(viewer);
-            if (owner == Owner.SELF) {
-                visiblePlanets.put(planet.getId(), planet);
-                for (IEdge edge : planet.getIEdges()) {
-                    visiblePlanets.put(edge.getDestinationPlanetId(), this.lookupPlanet(edge.getDestinationPlanetId()));
-                }
-            }
-        }
-
-        // The remaining planets are not visible
-        HashMap<Integer, Planet> nonvisiblePlanets = new HashMap<>();
-        for (Planet planet : this.planetMap.values()) {
-            if (!visiblePlanets.containsKey(planet.getId())) {
-                nonvisiblePlanets.put(planet.getId(), planet);
-            }
-        }
+    /**
+     * @return The number of people the player has across all planets, not counting people in flight
+     */
+    long getPopulation(InternalPlayer player) {
+        return state.getPopulation(player);
+    }
 
-        // Add VisiblePlanetSnapshots for visible planets
-        List<IPlanet> snapshots = new ArrayList<>();
-        for (Planet planet : visiblePlanets.values()) {
-            snapshots.add(planet.getVisiblePlanetSnapshot(viewer));
-        }
+    List<IPlanet> getPlanetsSnapshot(InternalPlayer viewer) {
+        return state.getPlanetsSnapshot(viewer);
+    }
 
-        // Add PlanetSnapshots for other planets
-        for (Planet planet : nonvisiblePlanets.values()) {
-            snapshots.add(planet.getPlanetSnapshot(viewer));
-        }
+    /**
+     * @return The game's simulated state, for measuring parts of a tick on their own
+     */
+    PlanetState getState() {
+        return state;
+    }
 
-        return snapshots;
+    /**
+     * @return A forward model of the game as the viewer can currently see it
+     */
+    IForwardModel getForwardModel(InternalPlayer viewer) {
+        return new ForwardModel(state.fork(viewer), viewer, turns);
     }
 
     @Override
     public String toString() {
-        return planetMap.toString();
+        return state.getPlanets().toString();
     }
 
     void setPlayer1(IStrategy player) {
         this.player1 = player;
+        seedPlayer(player, this.player1Seed);
     }
 
     void setPlayer2(IStrategy player) {
         this.player2 = player;
+        seedPlayer(player, this.player2Seed);
     }
 
     void setObserver(SpaceExplorersFrame observer) {
@@ -251,7 +754,9 @@ public final class SpaceExplorers implements IPlanetLookup {
      * @return The winning strategy
      */
     public IStrategy runToCompletion(int maxTicks) {
-        if (maxTicks == 0) {
+        if (!async) {
+            runHeadless(maxTicks);
+        } else if (maxTicks == 0) {
             while (!hasWon(InternalPlayer.PLAYER1) && !hasWon(InternalPlayer.PLAYER2) && !isOver()) {
                 gameTick();
             }
@@ -280,6 +785,57 @@ public final class SpaceExplorers implements IPlanetLookup {
         }
     }
 
+    /**
+     * Plays the game out on a carrier thread, so that if a strategy never returns from its turn the game can carry on
+     * on another carrier, and this thread still gets its result.
+     */
+    private void runHeadless(int maxTicks) {
+        HeadlessRun run = new HeadlessRun(maxTicks);
+        this.headlessRun = run;
+        try {
+            CARRIERS.execute(() -> play(run));
+            run.done.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw e;
+            }
+        } finally {
+            this.headlessRun = null;
+        }
+    }
+
+    private void play(HeadlessRun run) {
+        try {
+            while ((run.maxTicks == 0 || run.ticks < run.maxTicks) && !hasWon(InternalPlayer.PLAYER1) && !hasWon(InternalPlayer.PLAYER2) && !isOver()) {
+                run.ticks++;
+                if (!tick()) {
+                    return;
+                }
+            }
+            run.done.complete(null);
+        } catch (Throwable e) {
+            run.done.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * The progress of a headless runToCompletion, handed from carrier to carrier.
+     */
+    private static final class HeadlessRun {
+        final int maxTicks;
+        int ticks;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        HeadlessRun(int maxTicks) {
+            this.maxTicks = maxTicks;
+        }
+    }
+
     public static void main(String[] args) throws FileNotFoundException {
         IStrategy strategy1 = new StudentStrategy();
         IStrategy strategy2 = new StudentStrategy();
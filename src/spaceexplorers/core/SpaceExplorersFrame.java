@@ -259,12 +259,9 @@ final class SpaceExplorersFrame extends AnimationFrame {
     }
 
     private void drawInfo(Graphics g){
-        long p1 = 0; long p2 = 0;
+        long p1 = spaceExplorers.getPopulation(PLAYER1);
+        long p2 = spaceExplorers.getPopulation(InternalPlayer.PLAYER2);
         int turns = spaceExplorers.getTurns();
-        for(Planet p : spaceExplorers.getPlanets()){
-            p1 += p.getP1Population();
-            p2 += p.getP2Population();
-        }
         FontMetrics fm = g.getFontMetrics();
         String[] details = {"Player 1 Population: " + p1, "Player 2 Population: " + p2, "Turns left: " + (spaceExplorers.MAX_TURNS - turns)};
         int multiplier = 1;
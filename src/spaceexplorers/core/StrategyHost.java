@@ -0,0 +1,146 @@
+package spaceexplorers.core;
+
+import spaceexplorers.publicapi.*;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * A worker process which plays strategies from jars on the engine's behalf, talking {@link StrategyProtocol} over its
+ * stdin and stdout.
+ * <p>
+ * A strategy here can loop, leak or run out of heap without touching the engine, which can always just kill the
+ * process. Hosts are started by {@link StrategyWorker} and kept between games, so that only the first game on each
+ * pays for starting a JVM. Anything a strategy prints goes to stderr, as stdout carries the protocol.
+ */
+final class StrategyHost {
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final Map<Integer, Set<IEdge>> edges = new HashMap<>();
+    private IStrategy strategy;
+
+    private StrategyHost(DataInputStream in, DataOutputStream out) {
+        this.in = in;
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        System.setOut(System.err);
+        // If the engine dies without closing our stdin, a strategy stuck in a loop would keep us alive forever
+        ProcessHandle.current().parent().ifPresent(parent -> parent.onExit().thenRun(() -> Runtime.getRuntime().halt(1)));
+        new StrategyHost(new DataInputStream(new BufferedInputStream(System.in)), out).serve();
+    }
+
+    private void serve() throws IOException {
+        while (true) {
+            byte command;
+            try {
+                command = in.readByte();
+            } catch (EOFException e) {
+                return;
+            }
+            switch (command) {
+                case StrategyProtocol.LOAD:
+                    load(in.readUTF());
+                    break;
+                case StrategyProtocol.SEED:
+                    long seed = StrategyProtocol.readVarLong(in);
+                    if (strategy instanceof ISeededStrategy) {
+                        ((ISeededStrategy) strategy).setSeed(seed);
+                    }
+                    break;
+                case StrategyProtocol.TURN:
+                    takeTurn(StrategyProtocol.readTurn(in, edges));
+                    break;
+                case StrategyProtocol.RESET:
+                    strategy = null;
+                    edges.clear();
+                    break;
+                case StrategyProtocol.QUIT:
+                    return;
+                default:
+                    throw new IOException("Unknown command " + command);
+            }
+        }
+    }
+
+    private void load(String jar) throws IOException {
+        edges.clear();
+        try {
+            strategy = Assets.loadPlayer(jar);
+        } catch (RuntimeException e) {
+            strategy = null;
+        }
+        if (strategy == null) {
+            out.writeByte(StrategyProtocol.ERROR);
+            out.writeUTF("Failed to instantiate " + jar);
+        } else {
+            out.writeByte(StrategyProtocol.LOADED);
+            out.writeUTF(strategy.getName());
+            out.writeBoolean(strategy.compete());
+        }
+        out.flush();
+    }
+
+    private void takeTurn(List<IPlanet> planets) throws IOException {
+        Queue<IEvent> events = new ArrayDeque<>();
+        String thrown = "";
+        // Seeded games hold strategies to the CPU time they use, which only the host can measure
+        ThreadMeter meter = new ThreadMeter();
+        if (strategy != null) {
+            meter.start();
+            try {
+                strategy.takeTurn(planets, new HostPlanetOperations(), events);
+            } catch (RuntimeException e) {
+                // As in the engine, whatever moves it made before it threw still count; the engine is told what it threw
+                thrown = e.toString();
+            } finally {
+                meter.stop();
+            }
+        }
+        out.writeByte(StrategyProtocol.MOVES);
+        StrategyProtocol.writeMoves(out, events);
+        out.writeUTF(thrown);
+        StrategyProtocol.writeVarLong(out, meter.getCpuTime());
+        out.flush();
+    }
+
+    /**
+     * Planet operations for a strategy in a host, which records transfers to send back rather than making shuttles, and
+     * asks the engine for forward models. The engine only sends one per turn; the strategy is handed copies of it.
+     */
+    private final class HostPlanetOperations implements IPlanetOperations {
+        private ForwardModel model;
+
+        @Override
+        public IEvent transferPeople(IPlanet from, IPlanet to, long numPeople) {
+            return new StrategyProtocol.Transfer(from.getId(), to.getId(), numPeople);
+        }
+
+        @Override
+        public IForwardModel getForwardModel() {
+            if (model == null) {
+                try {
+                    out.writeByte(StrategyProtocol.FORK);
+                    out.flush();
+                    byte reply = in.readByte();
+                    if (reply == StrategyProtocol.ERROR) {
+                        throw new UnsupportedOperationException(in.readUTF());
+                    } else if (reply != StrategyProtocol.MODEL) {
+                        throw new IOException("Unknown command " + reply);
+                    }
+                    model = ForwardModel.read(in);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return model.copy();
+        }
+    }
+}
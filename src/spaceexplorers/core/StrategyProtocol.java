@@ -0,0 +1,222 @@
+package spaceexplorers.core;
+
+import spaceexplorers.publicapi.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * The binary protocol spoken between the engine and a {@link StrategyHost} over the host's stdin and stdout.
+ * <p>
+ * Every message is a one byte tag followed by its fields. Numbers are written as zigzag varints, so the small ids,
+ * populations and counts which make up most of a turn take a byte or two each. A planet's edges never change, so they
+ * are only sent the first time the planet is, and the host hands out the same set every turn after that.
+ * <p>
+ * While a strategy takes its turn, the host may ask for a forward model any number of times before sending its moves.
+ * The engine forks one for the strategy's player, as it would for a strategy of its own, and sends it whole.
+ */
+final class StrategyProtocol {
+    // Engine to host
+    static final byte LOAD = 'L';  // Jar name; answered with LOADED or ERROR
+    static final byte TURN = 'T';  // The planets as the strategy sees them; answered with MOVES
+    static final byte SEED = 'S';  // A seed for the strategy, if it takes one
+    static final byte RESET = 'R'; // Drops the strategy and the edges sent so far, ready for the next game
+    static final byte QUIT = 'Q';
+    static final byte MODEL = 'D'; // A forward model of the turn in answer to FORK, or ERROR if there is none
+
+    // Host to engine
+    static final byte LOADED = 'O'; // Strategy name and whether it competes
+    static final byte MOVES = 'M';  // The transfers the strategy queued, in order, what it threw or "", and its CPU time
+    static final byte ERROR = 'E';  // Message
+    static final byte FORK = 'F';   // Part way through a turn, the strategy wants a forward model; answered with MODEL
+
+    private static final int VISIBLE = 1;
+    private static final int HOMEWORLD = 2;
+    private static final int EDGES = 4;
+
+    private static final Owner[] OWNERS = Owner.values();
+
+    private StrategyProtocol() {
+    }
+
+    /**
+     * Writes a turn's planets, with the edges of any not in {@code edgesSent}, which are then added to it.
+     */
+    static void writeTurn(DataOutput out, List<IPlanet> planets, Set<Integer> edgesSent) throws IOException {
+        writeVarLong(out, planets.size());
+        for (IPlanet planet : planets) {
+            boolean sendEdges = edgesSent.add(planet.getId());
+            int flags = sendEdges ? EDGES : 0;
+            IVisiblePlanet visible = null;
+            if (planet instanceof IVisiblePlanet) {
+                visible = (IVisiblePlanet) planet;
+                flags |= VISIBLE | (visible.isHomeworld() ? HOMEWORLD : 0);
+            }
+            writeVarLong(out, planet.getId());
+            out.writeByte(flags);
+            if (sendEdges) {
+                // Bare snapshots hand out their edges in another order, which the host makes its own copy in
+                Set<IEdge> edges = planet instanceof PlanetSnapshot ? ((PlanetSnapshot) planet).getSharedEdges() : planet.getEdges();
+                writeVarLong(out, edges.size());
+                // Sent in the order they iterate, so that the host can rebuild a set which iterates the same way
+                for (IEdge edge : edges) {
+                    writeVarLong(out, edge.getDestinationPlanetId());
+                    writeVarLong(out, edge.getLength());
+                }
+            }
+            if (visible != null) {
+                writeVarLong(out, visible.getHabitability());
+                writeVarLong(out, visible.getSize());
+                writeVarLong(out, visible.getTotalPopulation());
+                writeVarLong(out, visible.getP1Population());
+                writeVarLong(out, visible.getP2Population());
+                out.writeByte(visible.getOwner().ordinal());
+                List<IShuttle> shuttles = visible.getIncomingShuttles();
+                writeVarLong(out, shuttles.size());
+                for (IShuttle shuttle : shuttles) {
+                    writeVarLong(out, shuttle.getSourcePlanetId());
+                    writeVarLong(out, shuttle.getDestinationPlanetId());
+                    out.writeByte(shuttle.getOwner().ordinal());
+                    writeVarLong(out, shuttle.getNumberPeople());
+                    writeVarLong(out, shuttle.getTurnsToArrival());
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a turn's planets, as snapshots like the engine's own.
+     *
+     * @param edges The edges of every planet read so far, by id; updated with any sent this turn
+     */
+    static List<IPlanet> readTurn(DataInput in, Map<Integer, Set<IEdge>> edges) throws IOException {
+        int count = (int) readVarLong(in);
+        List<IPlanet> planets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = (int) readVarLong(in);
+            int flags = in.readUnsignedByte();
+            if ((flags & EDGES) != 0) {
+                int edgeCount = (int) readVarLong(in);
+                // Sized and filled the way the engine's sets are, so that they iterate in the same order
+                Set<IEdge> planetEdges = new HashSet<>(edgeCount);
+                for (int e = 0; e < edgeCount; e++) {
+                    int destination = (int) readVarLong(in);
+                    int length = (int) readVarLong(in);
+                    planetEdges.add(new Edge(id, destination, length));
+                }
+                edges.put(id, Collections.unmodifiableSet(planetEdges));
+            }
+            Set<IEdge> planetEdges = edges.get(id);
+            if (planetEdges == null) {
+                throw new IOException("No edges were sent for planet " + id);
+            }
+            if ((flags & VISIBLE) == 0) {
+                planets.add(new PlanetSnapshot(id, planetEdges));
+                continue;
+            }
+            int habitability = (int) readVarLong(in);
+            long size = readVarLong(in);
+            long totalPopulation = readVarLong(in);
+            long p1Population = readVarLong(in);
+            long p2Population = readVarLong(in);
+            Owner owner = OWNERS[in.readUnsignedByte()];
+            int shuttleCount = (int) readVarLong(in);
+            List<IShuttle> shuttles = new ArrayList<>(shuttleCount);
+            for (int s = 0; s < shuttleCount; s++) {
+                int source = (int) readVarLong(in);
+                int destination = (int) readVarLong(in);
+                Owner shuttleOwner = OWNERS[in.readUnsignedByte()];
+                long people = readVarLong(in);
+                int turnsToArrival = (int) readVarLong(in);
+                shuttles.add(new ShuttleSnapshot(source, destination, shuttleOwner, people, turnsToArrival));
+            }
+            planets.add(new VisiblePlanetSnapshot(id, planetEdges, habitability, size, totalPopulation, p1Population,
+                    p2Population, owner, (flags & HOMEWORLD) != 0, shuttles));
+        }
+        return planets;
+    }
+
+    /**
+     * Writes the transfers among the events a strategy queued; anything else it queued is ignored, as the engine
+     * would ignore it.
+     */
+    static void writeMoves(DataOutput out, Queue<IEvent> events) throws IOException {
+        int count = 0;
+        for (IEvent event : events) {
+            if (event instanceof Transfer) {
+                count++;
+            }
+        }
+        writeVarLong(out, count);
+        for (IEvent event : events) {
+            if (event instanceof Transfer) {
+                Transfer transfer = (Transfer) event;
+                writeVarLong(out, transfer.from);
+                writeVarLong(out, transfer.to);
+                writeVarLong(out, transfer.people);
+            }
+        }
+    }
+
+    /**
+     * @return The transfers, as source id, destination id and number of people for each
+     */
+    static long[] readMoves(DataInput in) throws IOException {
+        int count = (int) readVarLong(in);
+        long[] moves = new long[3 * count];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = readVarLong(in);
+        }
+        return moves;
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) (zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * A transfer of people made by a strategy in a host, which only becomes a real shuttle once it reaches the engine.
+     */
+    static final class Transfer implements IEvent {
+        private final int from;
+        private final int to;
+        private final long people;
+
+        Transfer(int from, int to, long people) {
+            this.from = from;
+            this.to = to;
+            this.people = people;
+        }
+
+        int getFrom() {
+            return from;
+        }
+
+        int getTo() {
+            return to;
+        }
+
+        long getPeople() {
+            return people;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package spaceexplorers.core;
+
+import spaceexplorers.publicapi.IForwardModel;
+import spaceexplorers.publicapi.IPlanet;
+import spaceexplorers.publicapi.IPlanetOperations;
+
+import java.io.*;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A {@link StrategyHost} process, and the engine's end of the pipes to it.
+ * <p>
+ * Idle hosts are kept in a pool shared by every game, so that a game can borrow one already warmed up by earlier games.
+ * Replies are read by a thread of the worker's own, so that a turn waiting on a host can be interrupted like any other,
+ * at which point the host is killed rather than returned to the pool.
+ */
+final class StrategyWorker {
+    private static final String HEAP = System.getProperty("spaceexplorers.workerHeap", "256m");
+    private static final int MAX_IDLE = 2 * Runtime.getRuntime().availableProcessors();
+    private static final Deque<StrategyWorker> IDLE = new ConcurrentLinkedDeque<>();
+    private static final Set<StrategyWorker> LIVE = ConcurrentHashMap.newKeySet();
+
+    static {
+        // Hosts exit once their stdin closes, but one stuck in a strategy wouldn't notice
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            for (StrategyWorker worker : LIVE) {
+                worker.process.destroyForcibly();
+            }
+        }, "strategy-worker-reaper"));
+    }
+
+    private final Process process;
+    private final DataOutputStream out;
+    private final BlockingQueue<Reply> replies = new LinkedBlockingQueue<>();
+    private final Set<Integer> edgesSent = new HashSet<>();
+
+    private StrategyWorker() throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        this.process = new ProcessBuilder(java, "-Xmx" + HEAP, "-cp", System.getProperty("java.class.path"),
+                StrategyHost.class.getName())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        this.out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+        LIVE.add(this);
+        Thread reader = new Thread(this::readReplies, "strategy-worker-" + process.pid());
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Borrows an idle host, or starts one if there are none.
+     */
+    static StrategyWorker acquire() throws IOException {
+        StrategyWorker worker;
+        while ((worker = IDLE.pollFirst()) != null) {
+            if (worker.process.isAlive()) {
+                return worker;
+            }
+            LIVE.remove(worker);
+        }
+        return new StrategyWorker();
+    }
+
+    /**
+     * Starts hosts until there are at least this many idle, so that the first games don't wait for them.
+     */
+    static void prestart(int count) throws IOException {
+        for (int i = IDLE.size(); i < Math.min(count, MAX_IDLE); i++) {
+            IDLE.addLast(new StrategyWorker());
+        }
+    }
+
+    /**
+     * Resets the host and returns it to the pool, or stops it if the pool is full.
+     */
+    void release() {
+        edgesSent.clear();
+        try {
+            out.writeByte(StrategyProtocol.RESET);
+            out.flush();
+        } catch (IOException e) {
+            kill();
+            return;
+        }
+        if (IDLE.size() < MAX_IDLE) {
+            IDLE.addFirst(this);
+        } else {
+            try {
+                out.writeByte(StrategyProtocol.QUIT);
+                out.close();
+            } catch (IOException e) {
+                // It's going either way
+            }
+            LIVE.remove(this);
+        }
+    }
+
+    void kill() {
+        process.destroyForcibly();
+        LIVE.remove(this);
+    }
+
+    /**
+     * Loads a strategy in the host, replacing any loaded before.
+     *
+     * @return The strategy's name and whether it competes
+     * @throws IOException If the host failed to load it, or has died
+     */
+    Reply load(String jar) throws IOException, InterruptedException {
+        edgesSent.clear();
+        out.writeByte(StrategyProtocol.LOAD);
+        out.writeUTF(jar);
+        out.flush();
+        Reply reply = replies.take();
+        if (reply.type != StrategyProtocol.LOADED) {
+            throw new IOException(reply.type == StrategyProtocol.ERROR ? reply.text : "Strategy host exited");
+        }
+        return reply;
+    }
+
+    /**
+     * Seeds the loaded strategy, if it is an {@link spaceexplorers.publicapi.ISeededStrategy}. Nothing is sent back.
+     */
+    void seed(long seed) throws IOException {
+        out.writeByte(StrategyProtocol.SEED);
+        StrategyProtocol.writeVarLong(out, seed);
+        out.flush();
+    }
+
+    /**
+     * Has the loaded strategy take a turn, waiting for as long as it takes or until interrupted.
+     *
+     * @param operations The engine's operations for the turn, which any forward models the strategy asks for come from
+     * @return The transfers it made in {@link Reply#moves}, as source id, destination id and number of people for each,
+     *         in {@link Reply#text} what it threw, or "" if it didn't, and in {@link Reply#cpuTime} the CPU time it used
+     * @throws IOException If the host has died
+     */
+    Reply takeTurn(List<IPlanet> planets, IPlanetOperations operations) throws IOException, InterruptedException {
+        out.writeByte(StrategyProtocol.TURN);
+        StrategyProtocol.writeTurn(out, planets, edgesSent);
+        out.flush();
+        Reply reply = replies.take();
+        while (reply.type == StrategyProtocol.FORK) {
+            sendForwardModel(operations);
+            reply = replies.take();
+        }
+        if (reply.type != StrategyProtocol.MOVES) {
+            throw new IOException("Strategy host exited");
+        }
+        return reply;
+    }
+
+    private void sendForwardModel(IPlanetOperations operations) throws IOException {
+        IForwardModel model;
+        try {
+            model = operations.getForwardModel();
+        } catch (RuntimeException e) {
+            model = null;
+        }
+        if (model instanceof ForwardModel) {
+            out.writeByte(StrategyProtocol.MODEL);
+            ((ForwardModel) model).write(out);
+        } else {
+            out.writeByte(StrategyProtocol.ERROR);
+            out.writeUTF("No forward model is available this turn");
+        }
+        out.flush();
+    }
+
+    private void readReplies() {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        try {
+            while (true) {
+                byte type = in.readByte();
+                switch (type) {
+                    case StrategyProtocol.LOADED:
+                        replies.add(new Reply(type, in.readUTF(), in.readBoolean(), null, 0));
+                        break;
+                    case StrategyProtocol.ERROR:
+                        replies.add(new Reply(type, in.readUTF(), false, null, 0));
+                        break;
+                    case StrategyProtocol.FORK:
+                        replies.add(new Reply(type, null, false, null, 0));
+                        break;
+                    case StrategyProtocol.MOVES:
+                        long[] moves = StrategyProtocol.readMoves(in);
+                        String thrown = in.readUTF();
+                        replies.add(new Reply(type, thrown, false, moves, StrategyProtocol.readVarLong(in)));
+                        break;
+                    default:
+                        throw new IOException("Unknown reply " + type);
+                }
+            }
+        } catch (IOException e) {
+            // The host has exited or been killed; make sure it's gone, and wake anyone waiting on it
+            process.destroyForcibly();
+            LIVE.remove(this);
+            replies.add(new Reply((byte) 0, null, false, null, 0));
+        }
+    }
+
+    static final class Reply {
+        final byte type;
+        final String text;
+        final boolean flag;
+        final long[] moves;
+        final long cpuTime; // Of a turn, in the host
+
+        private Reply(byte type, String text, boolean flag, long[] moves, long cpuTime) {
+            this.type = type;
+            this.text = text;
+            this.flag = flag;
+            this.moves = moves;
+            this.cpuTime = cpuTime;
+        }
+    }
+}
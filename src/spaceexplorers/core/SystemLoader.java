@@ -1,81 +1,140 @@
 package spaceexplorers.core;
 
-import com.paypal.digraph.parser.GraphEdge;
-import com.paypal.digraph.parser.GraphNode;
-import com.paypal.digraph.parser.GraphParser;
-
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.util.Collection;
-import java.util.HashMap;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 final class SystemLoader {
-    static Map<Integer, Planet> load(String graph, IPlanetLookup planetLookup) throws FileNotFoundException {
-        GraphParser parser = Assets.loadGraph(graph);
-        Map<Integer, Planet> planetsMap = new HashMap<>();
+    // Maps already compiled, by graph name
+    private static final Map<String, CompiledMap> TEMPLATES = new ConcurrentHashMap<>();
 
-        for (Map.Entry<String, GraphNode> entry : parser.getNodes().entrySet()) {
-            GraphNode node = entry.getValue();
-            int id = Integer.parseInt(entry.getKey());
-            int habitability = Integer.parseInt((String) node.getAttribute("habit"));
-            int size = Integer.parseInt((String) node.getAttribute("size"));
-            int x = Integer.parseInt((String) node.getAttribute("x"));
-            int y = Integer.parseInt((String) node.getAttribute("y"));
+    /**
+     * Starts a game on a graph. Each graph is only parsed once, unless its file changes.
+     */
+    static PlanetState load(String graph, IPlanetLookup planetLookup) throws FileNotFoundException {
+        return getTemplate(graph).instantiate(planetLookup);
+    }
 
-            boolean isHomeworld;
-            InternalPlayer owningPlayer;
-            String base = (String) node.getAttribute("base");
-            if (base == null) {
-                isHomeworld = false;
-                owningPlayer = InternalPlayer.NEUTRAL;
-            } else {
-                isHomeworld = true;
-                switch (base) {
-                    case "1":
-                        owningPlayer = InternalPlayer.PLAYER1;
-                        break;
-                    case "2":
-                        owningPlayer = InternalPlayer.PLAYER2;
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Base must be either 1 or 2");
-                }
-            }
+    /**
+     * Gets a graph's compiled map. A binary map is used in place of the DOT file if it is at least as new.
+     */
+    static MapTemplate getTemplate(String graph) throws FileNotFoundException {
+        File dot = Assets.getGraphFile(graph);
+        File map = Assets.getMapFile(graph);
+        File source = map.lastModified() >= dot.lastModified() && map.isFile() ? map : dot;
+        long lastModified = source.lastModified();
 
-            Planet planet = new Planet(id, habitability, size, owningPlayer, isHomeworld, planetLookup);
-            if (isHomeworld) {
-                planet.setTotalPopulation(1);
-                if(planet.getOwningPlayer() == InternalPlayer.PLAYER1){
-                    planet.setP1Population(1);
-                } else {
-                    planet.setP2Population(1);
+        CompiledMap compiled = TEMPLATES.get(graph);
+        if (compiled == null || !compiled.source.equals(source) || compiled.lastModified != lastModified) {
+            // Two threads may both parse a graph the first time round; either template will do
+            MapTemplate template;
+            if (source == map) {
+                try {
+                    template = MapFile.read(map);
+                } catch (FileNotFoundException e) {
+                    throw e;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
+            } else {
+                template = parse(graph);
             }
-            planet.setLocation(new Point2D(x, y));
+            compiled = new CompiledMap(template, source, lastModified);
+            TEMPLATES.put(graph, compiled);
+        }
+        return compiled.template;
+    }
 
-            planetsMap.put(id, planet);
+    /**
+     * Reads a graph's DOT file.
+     */
+    static MapTemplate parse(String graph) throws FileNotFoundException {
+        try (InputStream in = new FileInputStream(Assets.getGraphFile(graph))) {
+            return DotReader.read(in);
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+    }
 
-        for (Map.Entry<String, GraphEdge> entry : parser.getEdges().entrySet()) {
-            GraphEdge edge = entry.getValue();
-            int id1 = Integer.parseInt(edge.getNode1().getId());
-            int id2 = Integer.parseInt(edge.getNode2().getId());
-            int distance = Integer.parseInt((String) edge.getAttribute("weight"));
+    /**
+     * Saves a map, as a binary map if the file name ends in {@value MapFile#EXTENSION} and as DOT otherwise.
+     */
+    public static void save(String filename, MapTemplate template) throws IOException {
+        File file = new File(filename);
+        if (filename.endsWith(MapFile.EXTENSION)) {
+            MapFile.write(template, file);
+            return;
+        }
 
-            Planet planet1 = planetsMap.get(id1);
-            Planet planet2 = planetsMap.get(id2);
-            planet1.addEdge(planet2, distance);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.US_ASCII))) {
+            out.write("graph g {\n");
+            for (int i = 0; i < template.count; i++) {
+                out.write("  " + template.ids[i] + " [ ");
+                if (template.homeworld[i]) {
+                    out.write("base = " + (template.owningPlayer[i] == InternalPlayer.PLAYER1.ordinal() ? 1 : 2) + ", ");
+                }
+                out.write("habit = " + template.habitability[i] + ", size = " + template.size[i]
+                        + ", x = " + template.x[i] + ", y = " + template.y[i] + " ]\n");
+            }
+            out.write("\n");
+            for (int i = 0; i < template.count; i++) {
+                for (int k = template.adjacencyStart[i]; k < template.adjacencyStart[i + 1]; k++) {
+                    // Each edge is listed from both ends; write it from the lower row
+                    int neighbour = template.adjacency[k];
+                    if (neighbour > i) {
+                        int length = template.adjacencyLength[k];
+                        out.write("  " + template.ids[i] + " -- " + template.ids[neighbour]
+                                + " [ label = " + length + ", weight = " + length + " ]\n");
+                    }
+                }
+            }
+            out.write("}\n");
         }
+    }
 
-        return planetsMap;
+    /**
+     * Saves a map as a graph's DOT file, replacing any graph of the same name.
+     */
+    static void saveGraph(String graph, MapTemplate template) throws IOException {
+        save(Assets.getGraphFile(graph).getPath(), template);
+        // A stale binary map would otherwise take precedence
+        File map = Assets.getMapFile(graph);
+        if (map.exists() && !map.delete()) {
+            throw new IOException("Could not delete " + map);
+        }
+        // The file may have been rewritten within the resolution of its modification time
+        TEMPLATES.remove(graph);
     }
 
-    public static void save(String filename, Collection<Planet> planets) {
-        throw new UnsupportedOperationException("Not implemented yet");
+    /**
+     * A compiled map, along with the file it was compiled from and that file's modification time.
+     */
+    private static final class CompiledMap {
+        private final MapTemplate template;
+        private final File source;
+        private final long lastModified;
+
+        private CompiledMap(MapTemplate template, File source, long lastModified) {
+            this.template = template;
+            this.source = source;
+            this.lastModified = lastModified;
+        }
     }
 
     public static void main(String[] args) throws FileNotFoundException {
-        Map<Integer, Planet> planetMap = load("graph", null);
+        PlanetState state = load("graph", null);
         System.out.println();
     }
 }
@@ -0,0 +1,87 @@
+package spaceexplorers.core;
+
+import jdk.jfr.*;
+
+/**
+ * A Flight Recorder event for one tick of a game, broken down into its phases.
+ * <p>
+ * Like the other game events, it is off unless a recording turns it on, for example with the settings in
+ * {@code spaceexplorers.jfc}: {@code -XX:StartFlightRecording:settings=default,settings=spaceexplorers.jfc}. While it is
+ * off, a tick neither reads the clock between phases nor allocates the event, as it checks {@link #TYPE} first.
+ * <p>
+ * When timed, a tick runs each planet phase over every planet before the next, rather than all three phases planet by
+ * planet; the planets don't affect each other within a tick, so the game plays out the same.
+ */
+@Name("spaceexplorers.Tick")
+@Label("Tick")
+@Category("Space Explorers")
+@Description("One tick of a game, with the time spent in each phase")
+@Enabled(false)
+@StackTrace(false)
+final class TickEvent extends Event {
+    static final EventType TYPE = EventType.getEventType(TickEvent.class); // Checked before making an event at all
+
+    @Label("Map")
+    String map;
+
+    @Label("Tick")
+    int tick;
+
+    @Label("Player")
+    @Description("The strategy whose turn it was, or both in simultaneous games")
+    String player;
+
+    @Label("Grow")
+    @Timespan
+    long grow;
+
+    @Label("Process Shuttles")
+    @Description("Landing the shuttles due this tick")
+    @Timespan
+    long processShuttles;
+
+    @Label("Shrink")
+    @Timespan
+    long shrink;
+
+    @Label("Win Check")
+    @Timespan
+    long winCheck;
+
+    @Label("Snapshot")
+    @Description("Building the players' views of the system")
+    @Timespan
+    long snapshot;
+
+    @Label("Strategy")
+    @Description("Waiting for the strategy to take its turn")
+    @Timespan
+    long strategy;
+
+    @Label("Events")
+    @Description("Launching the shuttles the strategy asked for")
+    @Timespan
+    long events;
+
+    private transient long lapStart; // Transient fields aren't recorded
+
+    /**
+     * Starts timing the tick, and its first phase.
+     */
+    void start(String map, int tick) {
+        begin();
+        this.map = map;
+        this.tick = tick;
+        this.lapStart = System.nanoTime();
+    }
+
+    /**
+     * @return The time since the last phase ended, which ends the current one
+     */
+    long lap() {
+        long now = System.nanoTime();
+        long elapsed = now - lapStart;
+        lapStart = now;
+        return elapsed;
+    }
+}
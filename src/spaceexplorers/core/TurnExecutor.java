@@ -0,0 +1,157 @@
+package spaceexplorers.core;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs one player's turns on a worker thread, giving up on any turn that runs past its deadline.
+ * <p>
+ * A strategy that overruns cannot be stopped safely, so its worker is retired instead: it is interrupted and left to
+ * finish on its own, and a spare worker which has already been started takes over, so the next turn starts on time no
+ * matter what the stuck one is doing. Workers are daemon threads which exit after a while idle, so an abandoned game
+ * does not keep the JVM alive.
+ */
+final class TurnExecutor {
+    private static final long IDLE_TIMEOUT_SECONDS = 30;
+    private static final long ALLOCATION_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final AtomicInteger WORKERS = new AtomicInteger();
+
+    private final String name;
+    private ThreadPoolExecutor worker;
+    private ThreadPoolExecutor spare;
+    private boolean shutdown;
+
+    /**
+     * @param name Used to name the worker threads, to make stuck strategies easy to find in a thread dump
+     */
+    TurnExecutor(String name) {
+        this.name = name;
+        this.worker = newWorker();
+        this.spare = newWorker();
+    }
+
+    /**
+     * Runs a turn, waiting for it to finish at most until the deadline, or until it allocates more than the limit.
+     *
+     * @param deadline In terms of {@link System#nanoTime()}
+     * @param meter    Measuring the turn
+     * @return True if the turn finished in time, even if it threw; false if it was abandoned
+     */
+    boolean run(Runnable turn, long deadline, ThreadMeter meter, long allocationLimit) {
+        return await(start(turn), deadline, meter, allocationLimit);
+    }
+
+    /**
+     * Starts a turn without waiting for it, so that another executor's turn can run alongside it.
+     * Each turn started must be passed to {@link #await(Future, long, ThreadMeter, long)} or
+     * {@link #cancel(Future, long, TimeUnit)} before the next is started.
+     */
+    Future<?> start(Runnable turn) {
+        if (shutdown) {
+            throw new IllegalStateException("Turn executor has been shut down");
+        }
+        return worker.submit(turn);
+    }
+
+    /**
+     * Waits for a turn to finish at most until the deadline, or until it allocates more than the limit.
+     * Without a limit, this just waits; with one, it checks on the turn every few milliseconds.
+     *
+     * @param deadline In terms of {@link System#nanoTime()}
+     * @param meter    Measuring the turn
+     * @return True if the turn finished in time, even if it threw; false if it was abandoned
+     */
+    boolean await(Future<?> future, long deadline, ThreadMeter meter, long allocationLimit) {
+        try {
+            if (allocationLimit == Long.MAX_VALUE) {
+                future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                return true;
+            }
+            while (true) {
+                long remaining = deadline - System.nanoTime();
+                try {
+                    future.get(Math.min(remaining, ALLOCATION_POLL_NANOS), TimeUnit.NANOSECONDS);
+                    return true;
+                } catch (TimeoutException e) {
+                    if (remaining <= ALLOCATION_POLL_NANOS || meter.getAllocatedSoFar() > allocationLimit) {
+                        throw e;
+                    }
+                }
+            }
+        } catch (ExecutionException e) {
+            // The strategy threw; whatever moves it made before then still count
+            return true;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            retire();
+            return false;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            retire();
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Stops a task which runs until it is told to, such as pondering, by interrupting it. If it hasn't stopped by the
+     * end of the grace period, its worker is retired, so that it can't hold up the turn after it.
+     *
+     * @return True if the task stopped in time; false if it was abandoned
+     */
+    boolean cancel(Future<?> future, long grace, TimeUnit unit) {
+        if (!future.cancel(true)) {
+            // It had already finished
+            return true;
+        }
+        // The worker is free once it has got to anything queued behind the task
+        Future<?> free = worker.submit(() -> { });
+        try {
+            free.get(grace, unit);
+            return true;
+        } catch (ExecutionException e) {
+            // Nothing to throw
+            return true;
+        } catch (TimeoutException e) {
+            retire();
+            return false;
+        } catch (InterruptedException e) {
+            retire();
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Stops the workers, interrupting any turn still running.
+     */
+    void shutdown() {
+        if (!shutdown) {
+            shutdown = true;
+            worker.shutdownNow();
+            spare.shutdownNow();
+        }
+    }
+
+    /**
+     * Swaps in the spare worker, and starts a new spare. The old worker takes no more turns, and its thread exits once
+     * the stuck turn finishes, if it ever does.
+     */
+    private void retire() {
+        worker.shutdownNow();
+        worker = spare;
+        spare = newWorker();
+    }
+
+    private ThreadPoolExecutor newWorker() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, name + "-turn-" + WORKERS.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        executor.prestartCoreThread();
+        return executor;
+    }
+}
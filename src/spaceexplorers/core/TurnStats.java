@@ -0,0 +1,47 @@
+package spaceexplorers.core;
+
+/**
+ * What a strategy's turns have cost: how long each took on the clock, how much CPU time its thread used, and how much
+ * memory it allocated. Turns which overran are included, with what they had used when they were given up on.
+ */
+public final class TurnStats {
+    private final Histogram wallTime = new Histogram();
+    private final Histogram cpuTime = new Histogram();
+    private final Histogram allocatedBytes = new Histogram();
+
+    void record(ThreadMeter meter) {
+        wallTime.record(meter.getWallTime());
+        cpuTime.record(meter.getCpuTime());
+        allocatedBytes.record(meter.getAllocatedBytes());
+    }
+
+    /**
+     * Adds another set of turns to these, e.g. to total a strategy's turns over several games.
+     */
+    public void add(TurnStats other) {
+        wallTime.add(other.wallTime);
+        cpuTime.add(other.cpuTime);
+        allocatedBytes.add(other.allocatedBytes);
+    }
+
+    /**
+     * @return Wall time per turn, in nanoseconds
+     */
+    public Histogram getWallTime() {
+        return wallTime;
+    }
+
+    /**
+     * @return CPU time per turn, in nanoseconds
+     */
+    public Histogram getCpuTime() {
+        return cpuTime;
+    }
+
+    /**
+     * @return Bytes allocated per turn
+     */
+    public Histogram getAllocatedBytes() {
+        return allocatedBytes;
+    }
+}
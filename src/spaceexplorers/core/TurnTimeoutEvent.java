@@ -0,0 +1,28 @@
+package spaceexplorers.core;
+
+import jdk.jfr.*;
+
+/**
+ * A Flight Recorder event for a turn a strategy lost by running out of time. Off by default, like {@link TickEvent}.
+ */
+@Name("spaceexplorers.TurnTimeout")
+@Label("Turn Timeout")
+@Category("Space Explorers")
+@Description("A strategy's turn which ran out of time")
+@Enabled(false)
+@StackTrace(false)
+final class TurnTimeoutEvent extends Event {
+    @Label("Map")
+    String map;
+
+    @Label("Tick")
+    int tick;
+
+    @Label("Strategy")
+    String strategy;
+
+    @Label("Turn Time")
+    @Description("How long the turn had been running when it was given up on")
+    @Timespan
+    long turnTime;
+}
@@ -0,0 +1,258 @@
+package spaceexplorers.core;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Enforces turn deadlines for strategies called inline, without handing each turn to another thread.
+ * <p>
+ * Every game shares one watchdog thread, which keeps the deadlines of the turns in progress in a heap and sleeps until
+ * the earliest. Starting and finishing a turn is just an insertion into and a removal from that heap, so a turn costs
+ * a few hundred nanoseconds rather than the two thread switches of an executor round trip. When a turn overruns, its
+ * thread is interrupted and the watch's timeout action runs on the watchdog thread; that should be quick, since every
+ * other deadline waits on it.
+ * <p>
+ * A turn can also be given an allocation limit, which is treated the same as running out of time. While any such turn is
+ * in progress, the watchdog wakes every few milliseconds to check how much each has allocated.
+ */
+final class TurnWatchdog implements Runnable {
+    private static final TurnWatchdog INSTANCE = new TurnWatchdog();
+    private static final long ALLOCATION_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition headChanged = lock.newCondition();
+    private Watch[] heap = new Watch[64];
+    private int size;
+    private int limited; // The number of watches in the heap with an allocation limit
+
+    private TurnWatchdog() {
+        Thread thread = new Thread(this, "turn-watchdog");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts watching a turn run by the current thread.
+     *
+     * @param deadline  In terms of {@link System#nanoTime()}
+     * @param onTimeout Run on the watchdog thread if the turn overruns, after the turn's thread has been interrupted
+     */
+    static Watch watch(long deadline, Runnable onTimeout) {
+        return watch(deadline, null, Long.MAX_VALUE, onTimeout);
+    }
+
+    /**
+     * Starts watching a turn run by the current thread, which is also given up on if it allocates more than the limit.
+     *
+     * @param meter Measuring the turn
+     */
+    static Watch watch(long deadline, ThreadMeter meter, long allocationLimit, Runnable onTimeout) {
+        Watch watch = new Watch(Thread.currentThread(), deadline, meter, allocationLimit, onTimeout);
+        INSTANCE.add(watch);
+        return watch;
+    }
+
+    /**
+     * A turn being watched. Exactly one of {@link #finish()} succeeding and the timeout action running happens.
+     */
+    static final class Watch {
+        private final Thread thread;
+        private final long deadline;
+        private final ThreadMeter meter;
+        private final long allocationLimit;
+        private final Runnable onTimeout;
+        private int index = -1; // Guarded by the watchdog's lock
+        private boolean finished; // Guarded by this
+        private boolean expired; // Guarded by this
+
+        private Watch(Thread thread, long deadline, ThreadMeter meter, long allocationLimit, Runnable onTimeout) {
+            this.thread = thread;
+            this.deadline = deadline;
+            this.meter = meter;
+            this.allocationLimit = meter == null ? Long.MAX_VALUE : allocationLimit;
+            this.onTimeout = onTimeout;
+        }
+
+        private boolean isLimited() {
+            return allocationLimit != Long.MAX_VALUE;
+        }
+
+        /**
+         * Stops watching the turn. Must be called by the thread which started it.
+         *
+         * @return True if the turn finished in time; false if it overran, in which case it has been given up on
+         */
+        boolean finish() {
+            boolean inTime;
+            synchronized (this) {
+                finished = true;
+                inTime = !expired;
+            }
+            if (inTime) {
+                INSTANCE.remove(this);
+            } else {
+                // The watchdog interrupted us before letting go of the watch; don't carry that into the next turn
+                Thread.interrupted();
+            }
+            return inTime;
+        }
+
+        private void expire() {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                expired = true;
+                thread.interrupt();
+            }
+            onTimeout.run();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            Watch overdue;
+            lock.lock();
+            try {
+                while (true) {
+                    if (size == 0) {
+                        headChanged.awaitUninterruptibly();
+                        continue;
+                    }
+                    long delay = heap[0].deadline - System.nanoTime();
+                    if (delay <= 0) {
+                        overdue = removeAt(0);
+                        break;
+                    }
+                    if (limited > 0) {
+                        overdue = removeOverAllocated();
+                        if (overdue != null) {
+                            break;
+                        }
+                        delay = Math.min(delay, ALLOCATION_POLL_NANOS);
+                    }
+                    headChanged.awaitNanos(delay);
+                }
+            } catch (InterruptedException e) {
+                // Nothing interrupts the watchdog on purpose; just keep watching
+                continue;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                overdue.expire();
+            } catch (RuntimeException e) {
+                // One game's timeout action failing must not stop every other game's deadlines
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void add(Watch watch) {
+        lock.lock();
+        try {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            heap[size] = watch;
+            watch.index = size;
+            size++;
+            siftUp(watch.index);
+            if (watch.isLimited()) {
+                limited++;
+            }
+            if (watch.index == 0 || (watch.isLimited() && limited == 1)) {
+                // Either way, the watchdog needs to wake sooner than it planned to
+                headChanged.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a watch which finished in time. The watchdog isn't woken even if it was the earliest; it will find the
+     * next deadline when it wakes for the old one.
+     */
+    private void remove(Watch watch) {
+        lock.lock();
+        try {
+            if (watch.index >= 0) {
+                removeAt(watch.index);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The first watch found to have allocated more than its limit, removed from the heap; or null if none has
+     */
+    private Watch removeOverAllocated() {
+        for (int i = 0; i < size; i++) {
+            Watch watch = heap[i];
+            if (watch.isLimited() && watch.meter.getAllocatedSoFar() > watch.allocationLimit) {
+                return removeAt(i);
+            }
+        }
+        return null;
+    }
+
+    private Watch removeAt(int i) {
+        Watch removed = heap[i];
+        removed.index = -1;
+        if (removed.isLimited()) {
+            limited--;
+        }
+        size--;
+        Watch last = heap[size];
+        heap[size] = null;
+        if (i < size) {
+            heap[i] = last;
+            last.index = i;
+            siftDown(i);
+            if (heap[i] == last) {
+                siftUp(i);
+            }
+        }
+        return removed;
+    }
+
+    private void siftUp(int i) {
+        Watch watch = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent].deadline - watch.deadline <= 0) {
+                break;
+            }
+            heap[i] = heap[parent];
+            heap[i].index = i;
+            i = parent;
+        }
+        heap[i] = watch;
+        watch.index = i;
+    }
+
+    private void siftDown(int i) {
+        Watch watch = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && heap[right].deadline - heap[child].deadline < 0) {
+                child = right;
+            }
+            if (watch.deadline - heap[child].deadline <= 0) {
+                break;
+            }
+            heap[i] = heap[child];
+            heap[i].index = i;
+            i = child;
+        }
+        heap[i] = watch;
+        watch.index = i;
+    }
+}
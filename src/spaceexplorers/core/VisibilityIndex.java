@@ -0,0 +1,220 @@
+package spaceexplorers.core;
+
+import spaceexplorers.publicapi.IPlanet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tracks which planets one player can see, and the snapshots that player was last handed.
+ * <p>
+ * A planet is visible to a player when the player owns it or one of its neighbours. For every planet the index counts
+ * how many planets in that neighbourhood the player owns, and the count is updated whenever a planet changes hands.
+ * Rows whose visibility or state has changed since the last snapshot are queued, and only those snapshots are rebuilt
+ * on the player's next turn.
+ * <p>
+ * Strategies are handed the snapshots in the order they have always had them in, which some break ties by: the
+ * visible planets, then the rest, each in the iteration order of a {@link java.util.HashMap} keyed by planet id. The
+ * visible planets were put in by walking the player's planets in map order, each followed by its neighbours, and the
+ * rest in map order. That order only changes when a planet changes hands, so it is worked out again only then.
+ */
+final class VisibilityIndex {
+    private final InternalPlayer viewer;
+    private final int[] ids;
+    private final int[] adjacencyStart;
+    private final int[] adjacency;
+
+    /**
+     * Every row, in the order the planets used to be kept in
+     */
+    private final int[] mapOrder;
+
+    /**
+     * Every row, in the order the viewer is handed their snapshots
+     */
+    private final int[] order;
+    private boolean orderStale = true;
+
+    /**
+     * Scratch space for working out {@link #order}
+     */
+    private final int[] rank;
+    private final int[] rowByRank;
+    private final long[] keys;
+
+    private final int[] ownedNeighbourhood;
+    private final IPlanet[] snapshots;
+    private final boolean[] dirty;
+    private final int[] dirtyRows;
+    private int dirtyCount;
+
+    /**
+     * @param ids            The id of the planet in each row
+     * @param adjacencyStart Where each row's neighbours start in {@code adjacency}; has one extra trailing entry
+     * @param adjacency      The rows of every planet's neighbours, grouped by planet, in the order they are listed in
+     *                       the planet's edges
+     */
+    public VisibilityIndex(InternalPlayer viewer, int planetCount, int[] ids, int[] adjacencyStart, int[] adjacency) {
+        assert viewer != InternalPlayer.NEUTRAL;
+        this.viewer = viewer;
+        this.ids = ids;
+        this.adjacencyStart = adjacencyStart;
+        this.adjacency = adjacency;
+
+        this.order = new int[planetCount];
+        this.rank = new int[planetCount];
+        this.rowByRank = new int[planetCount];
+        this.keys = new long[planetCount];
+
+        // The planets were put into their map in row order
+        for (int i = 0; i < planetCount; i++) {
+            rowByRank[i] = i;
+        }
+        this.mapOrder = new int[planetCount];
+        hashOrder(0, planetCount, mapOrder);
+
+        this.ownedNeighbourhood = new int[planetCount];
+        this.snapshots = new IPlanet[planetCount];
+        this.dirty = new boolean[planetCount];
+        this.dirtyRows = new int[planetCount];
+
+        // Nothing has been handed out yet
+        for (int i = 0; i < planetCount; i++) {
+            markDirty(i);
+        }
+    }
+
+    public boolean isVisible(int index) {
+        return ownedNeighbourhood[index] > 0;
+    }
+
+    /**
+     * Records that the viewer has taken ownership of a planet.
+     */
+    public void gained(int index) {
+        orderStale = true;
+        see(index);
+        for (int k = adjacencyStart[index]; k < adjacencyStart[index + 1]; k++) {
+            see(adjacency[k]);
+        }
+    }
+
+    /**
+     * Records that the viewer has lost ownership of a planet.
+     */
+    public void lost(int index) {
+        orderStale = true;
+        unsee(index);
+        for (int k = adjacencyStart[index]; k < adjacencyStart[index + 1]; k++) {
+            unsee(adjacency[k]);
+        }
+    }
+
+    private void see(int index) {
+        if (ownedNeighbourhood[index]++ == 0) {
+            markDirty(index);
+        }
+    }
+
+    private void unsee(int index) {
+        if (--ownedNeighbourhood[index] == 0) {
+            markDirty(index);
+        }
+    }
+
+    /**
+     * Queues a planet's snapshot to be rebuilt before it is next handed to the viewer.
+     */
+    public void markDirty(int index) {
+        if (!dirty[index]) {
+            dirty[index] = true;
+            dirtyRows[dirtyCount++] = index;
+        }
+    }
+
+    /**
+     * Brings the dirty snapshots up to date.
+     *
+     * @return The viewer's snapshot of every planet, visible planets first
+     */
+    public List<IPlanet> snapshot(PlanetState state) {
+        for (int d = 0; d < dirtyCount; d++) {
+            int index = dirtyRows[d];
+            dirty[index] = false;
+            Planet planet = state.getPlanet(index);
+            if (isVisible(index)) {
+                snapshots[index] = planet.getVisiblePlanetSnapshot(viewer);
+            } else {
+                snapshots[index] = planet.getPlanetSnapshot(viewer);
+            }
+        }
+        dirtyCount = 0;
+
+        if (orderStale) {
+            orderStale = false;
+            updateOrder(state);
+        }
+
+        // Strategies are free to keep or modify the list, so they each get their own copy
+        List<IPlanet> list = new ArrayList<>(order.length);
+        for (int index : order) {
+            list.add(snapshots[index]);
+        }
+        return list;
+    }
+
+    private void updateOrder(PlanetState state) {
+        Arrays.fill(rank, -1);
+
+        // Visible planets are ranked by when they were first put into their map
+        int visible = 0;
+        for (int index : mapOrder) {
+            if (state.getOwningPlayer(index) == viewer) {
+                visible = put(index, visible);
+                for (int k = adjacencyStart[index]; k < adjacencyStart[index + 1]; k++) {
+                    visible = put(adjacency[k], visible);
+                }
+            }
+        }
+        hashOrder(0, visible, order);
+
+        int hidden = visible;
+        for (int index : mapOrder) {
+            hidden = put(index, hidden);
+        }
+        hashOrder(visible, hidden, order);
+    }
+
+    private int put(int index, int ranked) {
+        if (rank[index] < 0) {
+            rank[index] = ranked;
+            rowByRank[ranked++] = index;
+        }
+        return ranked;
+    }
+
+    /**
+     * Orders ranked rows the way a {@link java.util.HashMap} they were put into in rank order iterates them: by bucket,
+     * then by when they were put in.
+     *
+     * @param from The first rank, inclusive
+     * @param to   The last rank, exclusive
+     * @param into Where the rows go, at the same positions as the ranks
+     */
+    private void hashOrder(int from, int to, int[] into) {
+        int buckets = 16;
+        while (to - from > buckets * 3 / 4) {
+            buckets <<= 1;
+        }
+        for (int r = from; r < to; r++) {
+            int id = ids[rowByRank[r]];
+            int bucket = (id ^ (id >>> 16)) & (buckets - 1);
+            keys[r] = (long) bucket << 32 | r;
+        }
+        Arrays.sort(keys, from, to);
+        for (int r = from; r < to; r++) {
+            into[r] = rowByRank[(int) keys[r]];
+        }
+    }
+}
@@ -26,6 +26,9 @@ final class VisiblePlanetSnapshot implements IVisiblePlanet {
     private boolean isHomeworld;
     private List<IShuttle> incomingShuttles;
 
+    /**
+     * @param edges The planet's edges; must not be modifiable, as it is handed out as is
+     */
     public VisiblePlanetSnapshot(int id, Set<IEdge> edges, int habitability, long size, long totalPopulation, long p1Population, long p2Population, Owner owner, boolean isHomeworld, List<IShuttle> incomingShuttles) {
         this.id = id;
         this.edges = edges;
@@ -46,7 +49,6 @@ final class VisiblePlanetSnapshot implements IVisiblePlanet {
 
     @Override
     public Set<IEdge> getEdges() {
-        // TODO: Return a copy here so they can't modify the set
         return edges;
     }
 
@@ -0,0 +1,56 @@
+package spaceexplorers.publicapi;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A strategy which can be stopped at any time, for strategies that search.
+ * <p>
+ * Rather than queueing its moves once it has decided, the strategy publishes the best moves it has found so far, and
+ * keeps refining them. When the time limit is reached the game plays whatever was published last instead of skipping
+ * the turn, so a search can use its whole budget. The strategy should still return promptly once
+ * {@link IAnytimeTurn#getRemainingNanos()} runs out; it will be interrupted.
+ */
+public interface IAnytimeStrategy extends IStrategy {
+    /**
+     * Method where students can observe the state of the system, and publish the moves they would make as they go.
+     *
+     * @param planets          The current state of the system.
+     * @param planetOperations Helper methods students can use to interact with the system.
+     * @param turn             The turn's deadline, and where moves are published.
+     */
+    void takeTurn(List<IPlanet> planets, IPlanetOperations planetOperations, IAnytimeTurn turn);
+
+    /**
+     * Takes an anytime turn with the game's usual one second budget, then queues whatever was published last.
+     * <p>
+     * The game calls {@link #takeTurn(List, IPlanetOperations, IAnytimeTurn)} directly; this is for anything else
+     * driving strategies through {@link IStrategy}.
+     */
+    @Override
+    default void takeTurn(List<IPlanet> planets, IPlanetOperations planetOperations, Queue<IEvent> eventsToExecute) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        List<IEvent> published = new ArrayList<>();
+        takeTurn(planets, planetOperations, new IAnytimeTurn() {
+            @Override
+            public long getDeadline() {
+                return deadline;
+            }
+
+            @Override
+            public long getRemainingNanos() {
+                return deadline - System.nanoTime();
+            }
+
+            @Override
+            public void publish(Collection<? extends IEvent> moves) {
+                published.clear();
+                published.addAll(moves);
+            }
+        });
+        eventsToExecute.addAll(published);
+    }
+}
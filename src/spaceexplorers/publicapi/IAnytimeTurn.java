@@ -0,0 +1,29 @@
+package spaceexplorers.publicapi;
+
+import java.util.Collection;
+
+/**
+ * A turn being taken by an {@link IAnytimeStrategy}, which it publishes its best moves so far to.
+ * <p>
+ * Whichever moves were published last when the strategy returns, or when its time runs out, are the ones played.
+ */
+public interface IAnytimeTurn {
+    /**
+     * Get the time the turn ends, comparable with {@link System#nanoTime()}.
+     */
+    long getDeadline();
+
+    /**
+     * Get the time left before the turn ends, in nanoseconds; negative once it has ended.
+     */
+    long getRemainingNanos();
+
+    /**
+     * Replace the moves to be played with these. The moves are copied, so the collection can be reused.
+     * <p>
+     * Once the turn has ended, publishing has no effect.
+     *
+     * @param moves Events from {@link IPlanetOperations#transferPeople(IPlanet, IPlanet, long)}
+     */
+    void publish(Collection<? extends IEvent> moves);
+}
@@ -0,0 +1,64 @@
+package spaceexplorers.publicapi;
+
+/**
+ * A private copy of the game which can be played forward without affecting the real one, for strategies that search.
+ * <p>
+ * The model follows exactly the same rules as the game, but only knows what the player could see when it was taken
+ * (see {@link IPlanetOperations#getForwardModel()}). Planets the player cannot see are modelled as empty neutral planets
+ * with no room for people, and the opponent's shuttles are only included if they are headed for a visible planet.
+ * As the opponent may own planets the player cannot see, a model with any hidden planets never ends with the player
+ * having wiped the opponent out; it plays on to the turn limit, where the winner is decided by the people it knows of.
+ * <p>
+ * Planets are referred to by id, as in {@link IPlanet#getId()}, and players from the point of view of the player who
+ * took the model: {@link Owner#SELF} or {@link Owner#OPPONENT}.
+ */
+public interface IForwardModel {
+    /**
+     * Get an independent copy of this model. Copies are cheap, so take one per branch of a search.
+     */
+    IForwardModel copy();
+
+    /**
+     * Launch a shuttle, following the same rules as the game.
+     *
+     * @return True if the move was valid and the shuttle has left
+     */
+    boolean transferPeople(Owner player, int fromId, int toId, long numPeople);
+
+    /**
+     * Launch a shuttle created by {@link IPlanetOperations#transferPeople(IPlanet, IPlanet, long)}.
+     *
+     * @return True if the move was valid and the shuttle has left
+     */
+    boolean apply(IEvent event);
+
+    /**
+     * Advance the model by a number of ticks, or until the game is over.
+     */
+    void step(int ticks);
+
+    /**
+     * Get the number of ticks played so far, counted the same way as the game.
+     */
+    int getTurn();
+
+    boolean isOver();
+
+    /**
+     * Get the winner once the model is over; {@link Owner#NEUTRAL} for a draw, or null if the game is still going.
+     */
+    Owner getWinner();
+
+    Owner getOwner(int planetId);
+
+    long getPopulation(int planetId, Owner player);
+
+    long getTotalPopulation(int planetId);
+
+    /**
+     * Get the number of people a player has across all planets, not counting people in flight.
+     */
+    long getPopulation(Owner player);
+
+    int getOwnedPlanets(Owner player);
+}
@@ -10,4 +10,11 @@ public interface IPlanetOperations {
      * Add this event to the queue in {@link IStrategy#takeTurn(List, IPlanetOperations, Queue)} for it to take effect.
      */
     IEvent transferPeople(IPlanet from, IPlanet to, long numPeople);
+
+    /**
+     * Get a copy of the game as you can currently see it, which can be played forward to evaluate moves.
+     * <p>
+     * The copy is independent of the game; nothing done to it takes effect. See {@link IForwardModel}.
+     */
+    IForwardModel getForwardModel();
 }
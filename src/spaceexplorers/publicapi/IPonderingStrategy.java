@@ -0,0 +1,23 @@
+package spaceexplorers.publicapi;
+
+import java.util.List;
+
+/**
+ * A strategy which thinks ahead while the opponent takes their turn.
+ * <p>
+ * As the opponent's turn begins, {@link #ponder(List, IForwardModel)} is called on a background thread, so that the
+ * strategy can get a head start on its next move; for example, by searching, and keeping what it finds for its next
+ * {@link #takeTurn}. Pondering gets at most half a second, and is stopped as soon as the strategy's own turn begins, by
+ * interrupting it; it should check {@link Thread#isInterrupted()} often, and return promptly once it is.
+ * <p>
+ * Pondering runs alongside the game, so anything it shares with {@code takeTurn} must be thread safe.
+ */
+public interface IPonderingStrategy extends IStrategy {
+    /**
+     * Method where students can think about their next move during the opponent's turn.
+     *
+     * @param planets The state of the system as the opponent's turn begins.
+     * @param model   A private forward model of the game as it was then.
+     */
+    void ponder(List<IPlanet> planets, IForwardModel model);
+}
@@ -0,0 +1,17 @@
+package spaceexplorers.publicapi;
+
+/**
+ * A strategy which makes random choices, and can be told what to seed them with.
+ * <p>
+ * When a game is played with a seed, {@link #setSeed(long)} is called before the first turn, with a seed drawn from the
+ * game's. A strategy which makes every random choice from it plays the same way whenever the game is played with that
+ * seed again, so games can be replayed, and results cached and compared.
+ */
+public interface ISeededStrategy extends IStrategy {
+    /**
+     * Method where students can seed their strategy's random choices for the game.
+     *
+     * @param seed Drawn from the game's seed.
+     */
+    void setSeed(long seed);
+}
@@ -1,11 +1,15 @@
 package spaceexplorers.publicapi;
 
 import spaceexplorers.core.Assets;
+import spaceexplorers.core.Histogram;
 import spaceexplorers.core.SpaceExplorers;
+import spaceexplorers.core.TurnStats;
 import spaceexplorers.strategies.*;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * The StrategyRanker class is responsible for ranking different strategies based on their performance in simulated games.
@@ -15,22 +19,44 @@ public class StrategyRanker {
     /** The number of trials to run for each strategy matchup. */
     public static final int NUM_TRIALS = 10;
 
+    /** What the games' seeds are drawn from, when they are seeded. */
+    private static final long SEED = 42;
+
     /**
      * The main method runs the strategy ranking algorithm and prints out the results.
+     * <p>
+     * Games share no state, so they are spread over a pool of threads; by default one per available processor.
      *
-     * @param args Command line arguments (not used).
+     * @param args Optionally, the number of games to run in parallel, then any of "simultaneous" to play every game
+     *             with simultaneous moves, "remote" to play the jarred strategies in separate worker processes,
+     *             "seeded" to seed every game, so that the same rankings come out every time, and "budgets" to hold
+     *             strategies to the suggested allocation budgets; e.g. {@code 4 seeded}, or just {@code seeded}.
      * @throws IllegalAccessException    If an illegal access exception occurs during strategy instantiation.
      * @throws InstantiationException    If an instantiation exception occurs during strategy instantiation.
      * @throws FileNotFoundException     If a file not found exception occurs during strategy loading.
+     * @throws IOException               If worker processes for the jarred strategies could not be started.
+     * @throws InterruptedException      If the ranking is interrupted while waiting for games to finish.
      */
-    public static void main(String[] args) throws IllegalAccessException, InstantiationException, FileNotFoundException {
+    public static void main(String[] args) throws IllegalAccessException, InstantiationException, IOException, InterruptedException {
+        boolean parallelismGiven = args.length > 0 && args[0].matches("\\d+");
+        int parallelism = parallelismGiven ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        List<String> options = Arrays.asList(args).subList(parallelismGiven ? 1 : 0, args.length);
+        boolean simultaneous = options.contains("simultaneous");
+        boolean remote = options.contains("remote");
+        boolean seeded = options.contains("seeded");
+        boolean budgets = options.contains("budgets");
+        if (remote) {
+            // Every game in progress could have two jarred strategies
+            Assets.prestartRemotePlayers(2 * parallelism);
+        }
+
         // Strategy providers for comparison
         List<IStrategyProvider> strategyProviders = new ArrayList<>();
         strategyProviders.add(new ClassStrategyProvider(NoOpStrategy.class));
         strategyProviders.add(new ClassStrategyProvider(RandomStrategy.class));
-        strategyProviders.add(new JarStrategyProvider("AI1Strategy"));
-        strategyProviders.add(new JarStrategyProvider("AI2Strategy"));
-        strategyProviders.add(new JarStrategyProvider("AI3Strategy"));
+        strategyProviders.add(new JarStrategyProvider("AI1Strategy", remote));
+        strategyProviders.add(new JarStrategyProvider("AI2Strategy", remote));
+        strategyProviders.add(new JarStrategyProvider("AI3Strategy", remote));
         strategyProviders.add(new ClassStrategyProvider(StudentStrategy.class));
 
         // List of graphs to test strategies on
@@ -44,8 +70,16 @@ public class StrategyRanker {
         // Initialize win counts
         Map<IStrategyProvider, Integer> wins = new HashMap<>();
         Map<IStrategyProvider, Map<String, Integer>> winsPerMap = new HashMap<>();
+        Map<IStrategyProvider, Integer> timeouts = new HashMap<>();
+        Map<IStrategyProvider, Integer> turnsForfeited = new HashMap<>();
+        Map<IStrategyProvider, Integer> gamesForfeited = new HashMap<>();
+        Map<IStrategyProvider, TurnStats> turnStats = new HashMap<>();
         for (IStrategyProvider strategyProvider : strategyProviders) {
             wins.put(strategyProvider, 0);
+            timeouts.put(strategyProvider, 0);
+            turnsForfeited.put(strategyProvider, 0);
+            gamesForfeited.put(strategyProvider, 0);
+            turnStats.put(strategyProvider, new TurnStats());
 
             winsPerMap.put(strategyProvider, new HashMap<>());
             for (String graph : graphs) {
@@ -53,51 +87,73 @@ public class StrategyRanker {
             }
         }
 
-        // Run strategy matchups
+        // Schedule strategy matchups, drawing each one's seed in turn
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<Game> games = new ArrayList<>();
         for (int i = 0; i < strategyProviders.size(); i++) {
             for (int j = i + 1; j < strategyProviders.size(); j++) {
-                if (i == j) {
-                    continue;
-                }
-
                 for (String graph : graphs) {
                     for (int trial = 0; trial < NUM_TRIALS; trial++) {
-                        IStrategyProvider strategyProvider1;
-                        IStrategyProvider strategyProvider2;
+                        Long seed = seeded ? random.nextLong() : null;
                         if (trial < NUM_TRIALS / 2) {
-                            strategyProvider1 = strategyProviders.get(i);
-                            strategyProvider2 = strategyProviders.get(j);
-                        } else {
-                            strategyProvider1 = strategyProviders.get(j);
-                            strategyProvider2 = strategyProviders.get(i);
-                        }
-
-                        IStrategy strategy1 = strategyProvider1.newInstance();
-                        IStrategy strategy2 = strategyProvider2.newInstance();
-
-                        SpaceExplorers spaceExplorers = new SpaceExplorers(strategy1, strategy2, graph, false);
-                        IStrategy winner = spaceExplorers.runToCompletion(10000);
-                        if (winner == strategy1) {
-                            wins.put(strategyProvider1, wins.get(strategyProvider1) + 1);
-                            winsPerMap.get(strategyProvider1).put(graph, winsPerMap.get(strategyProvider1).get(graph) + 1);
-                        } else if (winner == strategy2) {
-                            wins.put(strategyProvider2, wins.get(strategyProvider2) + 1);
-                            winsPerMap.get(strategyProvider2).put(graph, winsPerMap.get(strategyProvider2).get(graph) + 1);
+                            games.add(new Game(strategyProviders.get(i), strategyProviders.get(j), graph, simultaneous, budgets, seed));
                         } else {
-                            // No one won, neither player gets a point
+                            games.add(new Game(strategyProviders.get(j), strategyProviders.get(i), graph, simultaneous, budgets, seed));
                         }
                     }
                 }
             }
         }
 
+        // Run them; wins are only tallied on this thread, as each game's result comes back
+        int failedGames = 0;
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<IStrategyProvider>> results = pool.invokeAll(games);
+            for (int g = 0; g < games.size(); g++) {
+                Game game = games.get(g);
+                IStrategyProvider winner;
+                try {
+                    winner = getResult(results.get(g));
+                } catch (ExecutionException e) {
+                    // Neither player gets a point, or any penalties, for a game which could not be played out
+                    failedGames++;
+                    System.out.println(String.format("Game on %s between %s and %s failed: %s", game.graph,
+                            getName(game.strategyProvider1), getName(game.strategyProvider2), e.getCause()));
+                    continue;
+                }
+                timeouts.put(game.strategyProvider1, timeouts.get(game.strategyProvider1) + game.timeouts1);
+                timeouts.put(game.strategyProvider2, timeouts.get(game.strategyProvider2) + game.timeouts2);
+                turnsForfeited.put(game.strategyProvider1, turnsForfeited.get(game.strategyProvider1) + game.memoryForfeits1);
+                turnsForfeited.put(game.strategyProvider2, turnsForfeited.get(game.strategyProvider2) + game.memoryForfeits2);
+                if (game.forfeited1) {
+                    gamesForfeited.put(game.strategyProvider1, gamesForfeited.get(game.strategyProvider1) + 1);
+                }
+                if (game.forfeited2) {
+                    gamesForfeited.put(game.strategyProvider2, gamesForfeited.get(game.strategyProvider2) + 1);
+                }
+                turnStats.get(game.strategyProvider1).add(game.turnStats1);
+                turnStats.get(game.strategyProvider2).add(game.turnStats2);
+                if (winner != null) {
+                    String graph = game.graph;
+                    wins.put(winner, wins.get(winner) + 1);
+                    winsPerMap.get(winner).put(graph, winsPerMap.get(winner).get(graph) + 1);
+                } else {
+                    // No one won, neither player gets a point
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
         // Print rankings
         System.out.println("Rankings:");
         List<Map.Entry<IStrategyProvider, Integer>> winsPairs = new ArrayList<>(wins.entrySet());
         winsPairs.sort(Comparator.comparingInt(e -> -e.getValue()));
         for (Map.Entry<IStrategyProvider, Integer> entry : winsPairs) {
-            System.out.println(String.format("Strategy: %s, Wins: %d", entry.getKey().newInstance().getName(), entry.getValue()));
+            System.out.println(String.format("Strategy: %s, Wins: %d", getName(entry.getKey()), entry.getValue()));
         }
+        System.out.println(String.format("Failed Games: %d of %d", failedGames, games.size()));
 
         // Print wins per map
         System.out.println();
@@ -106,12 +162,192 @@ public class StrategyRanker {
         for (Map.Entry<IStrategyProvider, Map<String, Integer>> entry : winsPerMapPairs) {
             List<Map.Entry<String, Integer>> winsPerMapInnerPairs = new ArrayList<>(entry.getValue().entrySet());
             winsPerMapInnerPairs.sort(Comparator.comparingInt(e -> -e.getValue()));
-            System.out.println(String.format("Strategy: %s, Wins: %s", entry.getKey().newInstance().getName(), winsPerMapInnerPairs));
+            System.out.println(String.format("Strategy: %s, Wins: %s", getName(entry.getKey()), winsPerMapInnerPairs));
+        }
+
+        // Print turns lost to the time limit, and turns and games forfeited for allocating too much memory
+        System.out.println();
+        System.out.println("Penalties");
+        for (IStrategyProvider strategyProvider : strategyProviders) {
+            System.out.println(String.format("Strategy: %s, Timeouts: %d, Turns Forfeited: %d, Games Forfeited: %d",
+                    getName(strategyProvider), timeouts.get(strategyProvider),
+                    turnsForfeited.get(strategyProvider), gamesForfeited.get(strategyProvider)));
+        }
+
+        // Print what turns cost, to spot strategies which are slow, allocate a lot, or come close to the time limit
+        System.out.println();
+        System.out.println("Turn Costs (p50/p99/max)");
+        for (IStrategyProvider strategyProvider : strategyProviders) {
+            TurnStats stats = turnStats.get(strategyProvider);
+            System.out.println(String.format("Strategy: %s, Turns: %d, Wall: %s ms, CPU: %s ms, Allocated: %s KB",
+                    getName(strategyProvider), stats.getWallTime().getCount(),
+                    formatPercentiles(stats.getWallTime(), 1e6), formatPercentiles(stats.getCpuTime(), 1e6),
+                    formatPercentiles(stats.getAllocatedBytes(), 1024)));
+        }
+    }
+
+    /**
+     * Gets the name of a provider's strategy, closing the instance made to ask if it needs closing.
+     */
+    private static String getName(IStrategyProvider strategyProvider) throws IllegalAccessException, InstantiationException {
+        IStrategy strategy = strategyProvider.newInstance();
+        String name = strategy.getName();
+        try {
+            close(strategy);
+        } catch (Exception e) {
+            System.out.println(String.format("Closing %s failed: %s", name, e));
+        }
+        return name;
+    }
+
+    /**
+     * Closes the strategies which hold on to something between turns, such as a worker process. Every strategy is
+     * closed even if closing an earlier one fails.
+     *
+     * @throws Exception The first failure to close a strategy, with any later ones suppressed.
+     */
+    private static void close(IStrategy... strategies) throws Exception {
+        Exception failure = null;
+        for (IStrategy strategy : strategies) {
+            if (strategy instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) strategy).close();
+                } catch (Exception e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Formats the median, 99th percentile and largest value of a histogram, in the given unit.
+     */
+    private static String formatPercentiles(Histogram histogram, double unit) {
+        return String.format("%.3f/%.3f/%.3f", histogram.getPercentile(50) / unit, histogram.getPercentile(99) / unit,
+                histogram.getMax() / unit);
+    }
+
+    /**
+     * Waits for a game to finish, passing on the checked exceptions it could have thrown if it had been run directly
+     * when a strategy or map could not be loaded, since then no game could be played.
+     *
+     * @throws ExecutionException If anything else went wrong while the game was played.
+     */
+    private static IStrategyProvider getResult(Future<IStrategyProvider> result) throws IllegalAccessException,
+            InstantiationException, FileNotFoundException, InterruptedException, ExecutionException {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IllegalAccessException) {
+                throw (IllegalAccessException) cause;
+            } else if (cause instanceof InstantiationException) {
+                throw (InstantiationException) cause;
+            } else if (cause instanceof FileNotFoundException) {
+                throw (FileNotFoundException) cause;
+            } else {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * A single game between two strategies, which runs on whichever thread picks it up.
+     * The penalties each strategy incurred, and what its turns cost, are recorded once it has been played.
+     */
+    private static class Game implements Callable<IStrategyProvider> {
+        private final IStrategyProvider strategyProvider1;
+        private final IStrategyProvider strategyProvider2;
+        private final String graph;
+        private final boolean simultaneous;
+        private final boolean budgets;
+        private final Long seed;
+        private int timeouts1;
+        private int timeouts2;
+        private TurnStats turnStats1;
+        private TurnStats turnStats2;
+        private int memoryForfeits1;
+        private int memoryForfeits2;
+        private boolean forfeited1;
+        private boolean forfeited2;
+
+        /**
+         * @param budgets Whether to hold the strategies to the suggested allocation budgets.
+         * @param seed    The game's seed, or null to play it unseeded.
+         */
+        public Game(IStrategyProvider strategyProvider1, IStrategyProvider strategyProvider2, String graph, boolean simultaneous,
+                    boolean budgets, Long seed) {
+            this.strategyProvider1 = strategyProvider1;
+            this.strategyProvider2 = strategyProvider2;
+            this.graph = graph;
+            this.simultaneous = simultaneous;
+            this.budgets = budgets;
+            this.seed = seed;
+        }
+
+        /**
+         * Plays the game out.
+         *
+         * @return The provider of the winning strategy, or null if no one won.
+         */
+        @Override
+        public IStrategyProvider call() throws Exception {
+            IStrategy strategy1 = strategyProvider1.newInstance();
+            IStrategy strategy2;
+            try {
+                strategy2 = strategyProvider2.newInstance();
+            } catch (IllegalAccessException | InstantiationException | RuntimeException e) {
+                try {
+                    close(strategy1);
+                } catch (Exception suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+
+            SpaceExplorers spaceExplorers = new SpaceExplorers(strategy1, strategy2, graph, false);
+            spaceExplorers.setSimultaneousMoves(simultaneous);
+            if (budgets) {
+                spaceExplorers.setAllocationBudget(SpaceExplorers.SUGGESTED_TURN_ALLOCATION_BUDGET,
+                        SpaceExplorers.SUGGESTED_GAME_ALLOCATION_BUDGET);
+            }
+            if (seed != null) {
+                spaceExplorers.setSeed(seed);
+            }
+            IStrategy winner;
+            try {
+                winner = spaceExplorers.runToCompletion(10000);
+            } finally {
+                close(strategy1, strategy2);
+            }
+            timeouts1 = spaceExplorers.getTimeouts(strategy1);
+            timeouts2 = spaceExplorers.getTimeouts(strategy2);
+            turnStats1 = spaceExplorers.getTurnStats(strategy1);
+            turnStats2 = spaceExplorers.getTurnStats(strategy2);
+            memoryForfeits1 = spaceExplorers.getMemoryForfeits(strategy1);
+            memoryForfeits2 = spaceExplorers.getMemoryForfeits(strategy2);
+            forfeited1 = spaceExplorers.hasForfeited(strategy1);
+            forfeited2 = spaceExplorers.hasForfeited(strategy2);
+            if (winner == strategy1) {
+                return strategyProvider1;
+            } else if (winner == strategy2) {
+                return strategyProvider2;
+            } else {
+                return null;
+            }
         }
     }
 
     /**
      * Interface for getting an instance of a strategy, without knowing where it came from.
+     * Providers are shared by every game, so must be safe to call from several threads at once.
      */
     private interface IStrategyProvider {
         IStrategy newInstance() throws IllegalAccessException, InstantiationException;
@@ -150,14 +386,18 @@ public class StrategyRanker {
      */
     private static class JarStrategyProvider implements IStrategyProvider {
         private String jar;
+        private boolean remote;
 
         /**
          * Constructs a JarStrategyProvider with the provided jar name.
          *
-         * @param jar The name of the jar file containing the strategy.
+         * @param jar    The name of the jar file containing the strategy.
+         * @param remote Whether to play the strategy in a separate worker process, in which case instances must be
+         *               closed once their game is over.
          */
-        public JarStrategyProvider(String jar) {
+        public JarStrategyProvider(String jar, boolean remote) {
             this.jar = jar;
+            this.remote = remote;
         }
 
         /**
@@ -169,7 +409,7 @@ public class StrategyRanker {
          */
         @Override
         public IStrategy newInstance() throws IllegalAccessException, InstantiationException {
-            IStrategy instance = Assets.loadPlayer(jar);
+            IStrategy instance = remote ? Assets.loadRemotePlayer(jar) : Assets.loadPlayer(jar);
             if (instance == null) {
                 throw new InstantiationException("Failed to instantiate " + jar);
             }
@@ -7,7 +7,7 @@ import java.util.List;
 import java.util.Queue;
 import java.util.Random;
 
-public class RandomStrategy implements IStrategy {
+public class RandomStrategy implements ISeededStrategy {
 
     private static final int POPULATION_DIVISION = 5;
     private Random random;
@@ -16,6 +16,17 @@ public class RandomStrategy implements IStrategy {
         random = new Random();
     }
 
+    /**
+     * Seeds the strategy's choices, so that its games can be played again exactly. Games played with a seed call this
+     * before the first turn.
+     *
+     * @param seed Drawn from the game's seed.
+     */
+    @Override
+    public void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
     /**
      * Method where students can observe the state of the system and schedule events to be executed.
      *
@@ -0,0 +1,101 @@
+package spaceexplorers.core;
+
+import org.junit.jupiter.api.Test;
+import spaceexplorers.publicapi.IEdge;
+import spaceexplorers.publicapi.IForwardModel;
+import spaceexplorers.publicapi.IPlanet;
+import spaceexplorers.publicapi.IVisiblePlanet;
+import spaceexplorers.publicapi.Owner;
+import spaceexplorers.strategies.NoOpStrategy;
+import spaceexplorers.strategies.RandomStrategy;
+import spaceexplorers.strategies.StudentStrategy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ForwardModelTest {
+    /**
+     * On graph_3 neither homeworld can see the other's, so each player's model hides the opponent entirely.
+     */
+    private static SpaceExplorers foggedOpening() throws FileNotFoundException {
+        return new SpaceExplorers(new NoOpStrategy(), new NoOpStrategy(), "graph_3", false);
+    }
+
+    @Test
+    void foggedOpeningHidesTheOpponent() throws FileNotFoundException {
+        IForwardModel model = foggedOpening().getForwardModel(InternalPlayer.PLAYER1);
+        assertEquals(0, model.getOwnedPlanets(Owner.OPPONENT));
+        assertEquals(1, model.getOwnedPlanets(Owner.SELF));
+    }
+
+    @Test
+    void stepDoesNotEndAFoggedGame() throws FileNotFoundException {
+        SpaceExplorers game = foggedOpening();
+        for (InternalPlayer viewer : new InternalPlayer[]{InternalPlayer.PLAYER1, InternalPlayer.PLAYER2}) {
+            IForwardModel model = game.getForwardModel(viewer);
+            model.step(1);
+            assertFalse(model.isOver(), "The opponent's hidden planets count for something");
+            assertNull(model.getWinner());
+        }
+    }
+
+    @Test
+    void foggedGameIsDecidedAtTheTurnLimit() throws FileNotFoundException {
+        IForwardModel model = foggedOpening().getForwardModel(InternalPlayer.PLAYER1);
+        // As in the game, the tick after the last is the one which finds the game over
+        model.step(SpaceExplorers.MAX_TURNS + 1);
+        assertFalse(model.isOver());
+        model.step(1);
+        assertTrue(model.isOver());
+        assertEquals(SpaceExplorers.MAX_TURNS + 1, model.getTurn());
+        // The only people the model knows of are the player's own
+        assertEquals(Owner.SELF, model.getWinner());
+    }
+
+    @Test
+    void modelSentToAStrategyHostPlaysOutTheSame() throws IOException {
+        SpaceExplorers game = new SpaceExplorers(new RandomStrategy(), new StudentStrategy(), "graph_3", false);
+        game.setSeed(7);
+        game.runToCompletion(30);
+        ForwardModel model = (ForwardModel) game.getForwardModel(InternalPlayer.PLAYER1);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        model.write(new DataOutputStream(bytes));
+        ForwardModel sent = ForwardModel.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        List<IPlanet> planets = game.getPlanetsSnapshot(InternalPlayer.PLAYER1);
+        assertEquals(playOut(model, planets), playOut(sent, planets));
+    }
+
+    /**
+     * Sends half of every owned planet's people to its first neighbour, then plays on for a while.
+     *
+     * @return Who owns each planet and how many people each player has there, as the game stands afterwards
+     */
+    private static String playOut(IForwardModel model, List<IPlanet> planets) {
+        for (IPlanet planet : planets) {
+            if (planet instanceof IVisiblePlanet && ((IVisiblePlanet) planet).getOwner() == Owner.SELF) {
+                IEdge edge = planet.getEdges().iterator().next();
+                model.transferPeople(Owner.SELF, planet.getId(), edge.getDestinationPlanetId(),
+                        model.getPopulation(planet.getId(), Owner.SELF) / 2);
+            }
+        }
+        model.step(40);
+
+        StringBuilder outcome = new StringBuilder();
+        outcome.append(model.getTurn()).append(' ').append(model.getWinner());
+        for (IPlanet planet : planets) {
+            outcome.append(' ').append(planet.getId()).append(':').append(model.getOwner(planet.getId()))
+                    .append('/').append(model.getPopulation(planet.getId(), Owner.SELF))
+                    .append('/').append(model.getPopulation(planet.getId(), Owner.OPPONENT));
+        }
+        return outcome.toString();
+    }
+}
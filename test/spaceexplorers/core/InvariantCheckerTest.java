@@ -0,0 +1,33 @@
+package spaceexplorers.core;
+
+import org.junit.jupiter.api.Test;
+import spaceexplorers.publicapi.IStrategy;
+import spaceexplorers.strategies.RandomStrategy;
+import spaceexplorers.strategies.StudentStrategy;
+
+import java.io.FileNotFoundException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvariantCheckerTest {
+    private static final long SEED = 42;
+
+    private static void play(IStrategy player1, IStrategy player2, String graph) throws FileNotFoundException {
+        SpaceExplorers game = new SpaceExplorers(player1, player2, graph, false);
+        game.setSeed(SEED);
+        game.runToCompletion(0);
+    }
+
+    @Test
+    void corpusGamesBreakNoInvariants() throws FileNotFoundException {
+        assertEquals(InvariantChecker.Mode.FAIL_FAST, InvariantChecker.MODE,
+                "Run with -Dspaceexplorers.invariants=fail-fast");
+        long violations = InvariantChecker.getViolationCount();
+        for (String graph : Assets.getGraphs()) {
+            graph = graph.replace(".dot", "");
+            play(new StudentStrategy(), new RandomStrategy(), graph);
+            play(Assets.loadPlayer("AI2Strategy"), Assets.loadPlayer("AI3Strategy"), graph);
+        }
+        assertEquals(violations, InvariantChecker.getViolationCount());
+    }
+}
@@ -0,0 +1,83 @@
+package spaceexplorers.core;
+
+import org.junit.jupiter.api.Test;
+import spaceexplorers.publicapi.IEvent;
+import spaceexplorers.publicapi.IPlanet;
+import spaceexplorers.publicapi.IPlanetOperations;
+import spaceexplorers.publicapi.IStrategy;
+import spaceexplorers.strategies.RandomStrategy;
+import spaceexplorers.strategies.StudentStrategy;
+
+import java.io.FileNotFoundException;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeededGameTest {
+    private static final String MAP = "graph_3";
+    private static final long SEED = 42;
+    private static final long TURN_BUDGET = 1L << 20;
+
+    /**
+     * Plays a random strategy, allocating about as much as the turn budget allows every turn, so that whether it goes
+     * over depends on what the JIT makes of it.
+     */
+    private static final class HungryStrategy extends RandomStrategy {
+        private byte[] kept; // So that the allocation can't be optimised away
+
+        @Override
+        public void takeTurn(List<IPlanet> planets, IPlanetOperations planetOperations, Queue<IEvent> eventsToExecute) {
+            kept = new byte[(int) TURN_BUDGET - 64];
+            super.takeTurn(planets, planetOperations, eventsToExecute);
+        }
+    }
+
+    private static SpaceExplorers play(IStrategy player1, IStrategy player2, boolean budgets) throws FileNotFoundException {
+        SpaceExplorers game = new SpaceExplorers(player1, player2, MAP, false);
+        if (budgets) {
+            game.setAllocationBudget(TURN_BUDGET, 8 * TURN_BUDGET);
+        }
+        game.setSeed(SEED);
+        game.runToCompletion(0);
+        return game;
+    }
+
+    private static String outcome(SpaceExplorers game) {
+        return game.getTurns() + " turns, won by " + game.getWinner() + ", " + game.getPopulation(InternalPlayer.PLAYER1)
+                + " to " + game.getPopulation(InternalPlayer.PLAYER2);
+    }
+
+    @Test
+    void sameSeedPlaysTheSameGame() throws FileNotFoundException {
+        String first = outcome(play(new RandomStrategy(), new StudentStrategy(), false));
+        String second = outcome(play(new RandomStrategy(), new StudentStrategy(), false));
+        assertEquals(first, second);
+    }
+
+    @Test
+    void allocationCloseToTheBudgetDoesNotChangeTheGame() throws FileNotFoundException {
+        String unbudgeted = outcome(play(new RandomStrategy(), new StudentStrategy(), false));
+        for (int run = 0; run < 2; run++) {
+            IStrategy hungry = new HungryStrategy();
+            SpaceExplorers game = play(hungry, new StudentStrategy(), true);
+            assertEquals(0, game.getMemoryForfeits(hungry));
+            assertFalse(game.hasForfeited(hungry));
+            assertEquals(unbudgeted, outcome(game));
+        }
+    }
+
+    @Test
+    void remoteStrategyPlaysTheSameSeededGame() throws FileNotFoundException {
+        String local = outcome(play(Assets.loadPlayer("StudentStrategy"), new RandomStrategy(), false));
+        IStrategy remote = Assets.loadRemotePlayer("StudentStrategy");
+        assertNotNull(remote);
+        try {
+            SpaceExplorers game = play(remote, new RandomStrategy(), false);
+            assertEquals(local, outcome(game));
+            assertEquals(0, game.getTimeouts(remote));
+        } finally {
+            ((RemoteStrategy) remote).close();
+        }
+    }
+}